@@ -0,0 +1,197 @@
+import java.io.BufferedReader;
+import java.io.FileReader;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.json.simple.JSONArray;
+import org.json.simple.JSONObject;
+import org.json.simple.parser.JSONParser;
+
+/**
+ * Filename:   CatalogDelta.java
+ * Project:    p4
+ * Authors:    Aron Denenberg
+ *
+ * The changes between two versions of a course catalog: courses added, courses removed and courses whose
+ * prerequisites changed. A delta is read from a json file of the form
+ *
+ *   {
+ *     "added":   [ { "name": "CS640", "prerequisites": ["CS400"] } ],
+ *     "removed": [ "CS368" ],
+ *     "changed": [ { "name": "CS540", "prerequisites": ["CS300", "MATH340"] } ]
+ *   }
+ *
+ * where every key is optional and a changed course lists its whole new set of prerequisites. It is
+ * applied with CourseSchedulerUtil.applyDelta, which only touches the courses named in the delta.
+ *
+ * Bugs or other notes: a course that is both removed and added or changed in the same delta ends up
+ * in the catalog, since removals are applied first
+ */
+public class CatalogDelta {
+
+	// field variables
+	private List<Entity<String>> added; // new courses and their prerequisites
+	private List<String> removed; // names of courses that no longer exist
+	private List<Entity<String>> changed; // existing courses and their whole new set of prerequisites
+
+	/**
+	 * Constructor for the class. Creates an empty delta
+	 */
+	public CatalogDelta() {
+		added = new ArrayList<Entity<String>>();
+		removed = new ArrayList<String>();
+		changed = new ArrayList<Entity<String>>();
+	}
+
+	/**
+	 * Reads a delta from a json file
+	 *
+	 * @param fileName is the json file to read
+	 * @return the delta in the file
+	 * @throws Exception like FileNotFound, JsonParseException, or a ClassCastException if an entry isn't
+	 *         in the expected form
+	 */
+	public static CatalogDelta read(String fileName) throws Exception {
+		try (Reader reader = new BufferedReader(new FileReader(fileName))) {
+			JSONObject json = (JSONObject) new JSONParser().parse(reader);
+			CatalogDelta delta = new CatalogDelta();
+			for (Object course : list(json, "added")) {
+				delta.addCourse(toEntity((JSONObject) course));
+			}
+			for (Object name : list(json, "removed")) {
+				delta.removeCourse((String) name);
+			}
+			for (Object course : list(json, "changed")) {
+				delta.changeCourse(toEntity((JSONObject) course));
+			}
+			return delta;
+		}
+	}
+
+	/**
+	 * Works out the delta that turns one catalog into another, such as the entities of last term's and this
+	 * term's files. Courses are matched by name and prerequisites compared as sets
+	 *
+	 * @param before are the courses of the old catalog
+	 * @param after are the courses of the new catalog
+	 * @return delta that applied to a graph of before gives a graph of after
+	 */
+	@SuppressWarnings({ "rawtypes", "unchecked" })
+	public static CatalogDelta between(Entity[] before, Entity[] after) {
+		Map<String, Set<String>> old = new HashMap<String, Set<String>>();
+		for (Entity course : before) {
+			old.put((String) course.getName(), new HashSet<String>(Arrays.asList((String[]) course.getPrerequisites())));
+		}
+		CatalogDelta delta = new CatalogDelta();
+		Set<String> kept = new HashSet<String>();
+		for (Entity course : after) {
+			String name = (String) course.getName();
+			Set<String> prerequisites = old.get(name);
+			if (prerequisites == null) {
+				delta.addCourse(course);
+			} else if (!prerequisites.equals(new HashSet<String>(Arrays.asList((String[]) course.getPrerequisites())))) {
+				delta.changeCourse(course);
+			}
+			kept.add(name);
+		}
+		for (Entity course : before) {
+			if (!kept.contains(course.getName())) {
+				delta.removeCourse((String) course.getName());
+			}
+		}
+		return delta;
+	}
+
+	/**
+	 * Adds a new course to the delta
+	 *
+	 * @param course is the name and prerequisites of the course
+	 */
+	public void addCourse(Entity<String> course) {
+		added.add(course);
+	}
+
+	/**
+	 * Adds a course to remove to the delta
+	 *
+	 * @param name of the course
+	 */
+	public void removeCourse(String name) {
+		removed.add(name);
+	}
+
+	/**
+	 * Adds a course whose prerequisites changed to the delta
+	 *
+	 * @param course is the name and whole new set of prerequisites of the course
+	 */
+	public void changeCourse(Entity<String> course) {
+		changed.add(course);
+	}
+
+	/**
+	 * Gets the courses added by the delta
+	 *
+	 * @return read only list of the added courses
+	 */
+	public List<Entity<String>> getAdded() {
+		return Collections.unmodifiableList(added);
+	}
+
+	/**
+	 * Gets the courses removed by the delta
+	 *
+	 * @return read only list of the names of removed courses
+	 */
+	public List<String> getRemoved() {
+		return Collections.unmodifiableList(removed);
+	}
+
+	/**
+	 * Gets the courses whose prerequisites change in the delta
+	 *
+	 * @return read only list of the changed courses with their new prerequisites
+	 */
+	public List<Entity<String>> getChanged() {
+		return Collections.unmodifiableList(changed);
+	}
+
+	/**
+	 * Gets the number of courses named by the delta
+	 *
+	 * @return number of added, removed and changed courses
+	 */
+	public int size() {
+		return added.size() + removed.size() + changed.size();
+	}
+
+	/**
+	 * Gets the array under a key of the delta file, empty when the key is missing
+	 */
+	private static JSONArray list(JSONObject json, String key) {
+		JSONArray list = (JSONArray) json.get(key);
+		return list == null ? new JSONArray() : list;
+	}
+
+	/**
+	 * Makes a course from a json object with a name and a prerequisites array
+	 */
+	private static Entity<String> toEntity(JSONObject json) {
+		Entity<String> course = new Entity<String>();
+		course.setName((String) json.get("name"));
+		JSONArray prerequisites = list(json, "prerequisites");
+		String[] names = new String[prerequisites.size()];
+		for (int i = 0; i < names.length; i++) {
+			names[i] = (String) prerequisites.get(i);
+		}
+		course.setPrerequisites(names);
+		return course;
+	}
+}
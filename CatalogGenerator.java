@@ -0,0 +1,107 @@
+import java.io.BufferedWriter;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.util.LinkedHashSet;
+import java.util.Random;
+import java.util.Set;
+
+/**
+ * Filename:   CatalogGenerator.java
+ * Project:    p4
+ * Authors:    Aron Denenberg
+ *
+ * Builds synthetic course catalogs of a given size and shape for benchmarking. Courses are named C0,
+ * C1, ... and, except for the cyclic shape, a course only ever has lower numbered courses as
+ * prerequisites so the catalog can always be completed.
+ */
+public class CatalogGenerator {
+
+	/**
+	 * Shapes of catalog that can be generated
+	 */
+	public enum Shape {
+		CHAIN, // every course requires the one before it, one long prerequisite chain
+		WIDE, // a small set of base courses that every other course picks a few prerequisites from
+		RANDOM, // every course picks a few prerequisites from all lower numbered courses
+		CYCLIC // a random catalog with a prerequisite added from the first course back to the last
+	}
+
+	// number of prerequisites each course is given in the wide and random shapes
+	private static final int PREREQUISITES = 3;
+
+	/**
+	 * Builds the entities of a catalog
+	 *
+	 * @param shape of the catalog
+	 * @param courses is the number of courses in the catalog
+	 * @param seed for the random choice of prerequisites, the same seed always gives the same catalog
+	 * @return array of entities, one for each course
+	 */
+	@SuppressWarnings("rawtypes")
+	public static Entity[] generate(Shape shape, int courses, long seed) {
+		Random random = new Random(seed);
+		int baseCourses = Math.max(1, (int) Math.sqrt(courses)); // courses the wide shape picks from
+		Entity[] entities = new Entity[courses];
+		for (int i = 0; i < courses; i++) {
+			Set<String> prereqs = new LinkedHashSet<String>();
+			switch (shape) {
+			case CHAIN:
+				if (i > 0) {
+					prereqs.add(name(i - 1));
+				}
+				break;
+			case WIDE:
+				if (i >= baseCourses) {
+					for (int j = 0; j < PREREQUISITES; j++) {
+						prereqs.add(name(random.nextInt(baseCourses)));
+					}
+				}
+				break;
+			case RANDOM:
+			case CYCLIC:
+				for (int j = 0; j < PREREQUISITES && i > 0; j++) {
+					prereqs.add(name(random.nextInt(i)));
+				}
+				if (shape == Shape.CYCLIC && i == 0 && courses > 1) {
+					prereqs.add(name(courses - 1));
+				}
+				break;
+			}
+			Entity<String> entity = new Entity<String>();
+			entity.setName(name(i));
+			entity.setPrerequisites(prereqs.toArray(new String[prereqs.size()]));
+			entities[i] = entity;
+		}
+		return entities;
+	}
+
+	/**
+	 * Writes entities to a json file in the format read by CourseSchedulerUtil.createEntity
+	 *
+	 * @param entities to write
+	 * @param fileName is the file to write to
+	 * @throws IOException if the file can't be written
+	 */
+	@SuppressWarnings("rawtypes")
+	public static void write(Entity[] entities, String fileName) throws IOException {
+		try (BufferedWriter writer = new BufferedWriter(new FileWriter(fileName))) {
+			writer.write("{\"courses\": [\n");
+			for (int i = 0; i < entities.length; i++) {
+				writer.write("{\"name\": \"" + entities[i].getName() + "\", \"prerequisites\": [");
+				Object[] prereqs = entities[i].getPrerequisites();
+				for (int j = 0; j < prereqs.length; j++) {
+					writer.write((j > 0 ? ", \"" : "\"") + prereqs[j] + "\"");
+				}
+				writer.write(i < entities.length - 1 ? "]},\n" : "]}\n");
+			}
+			writer.write("]}\n");
+		}
+	}
+
+	/**
+	 * Gets the name of the course with the given number
+	 */
+	private static String name(int course) {
+		return "C" + course;
+	}
+}
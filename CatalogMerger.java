@@ -0,0 +1,196 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Filename:   CatalogMerger.java
+ * Project:    p4
+ * Authors:    Aron Denenberg
+ *
+ * Loads a catalog that is split across several json files, such as one per department. The files are
+ * parsed in parallel on a fixed size pool of threads, then merged into one array of entities in file
+ * order. Prerequisites may name courses in any file, and a course that is only ever named as a
+ * prerequisite is added once with no prerequisites of its own, found through a bitset over dictionary
+ * ids rather than by searching the merged courses.
+ *
+ * A course defined more than once, in more than one file or twice in the same file, is kept as first
+ * defined. If a later definition has the same prerequisites it is reported as a duplicate, otherwise as a
+ * conflict.
+ *
+ * Bugs or other notes: the merge itself runs on one thread after all the files are parsed
+ */
+public class CatalogMerger {
+
+	// field variables
+	private int threads; // most files parsed at once
+	private CourseDictionary dictionary; // ids of every name in the merged files
+	private List<String> duplicates; // messages for courses defined again with the same prerequisites
+	private List<String> conflicts; // messages for courses defined again with different prerequisites
+
+	/**
+	 * Constructor for the class. Uses one thread per available processor
+	 */
+	public CatalogMerger() {
+		this(Runtime.getRuntime().availableProcessors());
+	}
+
+	/**
+	 * Constructor for the class
+	 *
+	 * @param threads is the most files parsed at once
+	 * @throws IllegalArgumentException if threads is less than 1
+	 */
+	public CatalogMerger(int threads) {
+		if (threads < 1) {
+			throw new IllegalArgumentException("threads must be at least 1: " + threads);
+		}
+		this.threads = threads;
+		this.dictionary = new CourseDictionary();
+		this.duplicates = new ArrayList<String>();
+		this.conflicts = new ArrayList<String>();
+	}
+
+	/**
+	 * Parses and merges the given files. Reports from earlier calls are cleared and a new dictionary is
+	 * started, so names from earlier catalogs aren't kept
+	 *
+	 * @param fileNames are the json files to read, earlier files win conflicts
+	 * @return array of Entity object which stores information about a single course
+	 *         including its name and its prerequisites, each course once
+	 * @throws Exception like FileNotFound, JsonParseException, from the first file in the list that failed
+	 */
+	@SuppressWarnings({ "rawtypes" })
+	public Entity[] merge(List<String> fileNames) throws Exception {
+		duplicates.clear();
+		conflicts.clear();
+		dictionary = new CourseDictionary(); // one given out for an earlier merge stays as it was
+		List<List<Entity<String>>> parsed = parseAll(fileNames);
+
+		List<Entity> courseInformation = new ArrayList<Entity>(); // entities in file order
+		List<String> definedIn = new ArrayList<String>(); // file each course was first defined in, by id
+		List<Entity<String>> definitions = new ArrayList<Entity<String>>(); // first definition of each course, by id
+		BitSet listedCourses = new BitSet(); // ids of courses that have their own entry in some file
+		BitSet allCourses = new BitSet(); // ids of all courses either as a course entry or a prerequisite
+		for (int file = 0; file < parsed.size(); file++) {
+			for (Entity<String> course : parsed.get(file)) {
+				Entity<String> canonical = dictionary.canonical(course);
+				int id = dictionary.idOf(canonical.getName());
+				while (definitions.size() <= id) {
+					definitions.add(null);
+					definedIn.add(null);
+				}
+				if (listedCourses.get(id)) {
+					report(definitions.get(id), definedIn.get(id), canonical, fileNames.get(file));
+					continue;
+				}
+				listedCourses.set(id);
+				allCourses.set(id);
+				for (String prereq : canonical.getPrerequisites()) {
+					allCourses.set(dictionary.idOf(prereq));
+				}
+				definitions.set(id, canonical);
+				definedIn.set(id, fileNames.get(file));
+				courseInformation.add(canonical);
+			}
+		}
+
+		// courses only named as prerequisites are added with no prerequisites of their own
+		allCourses.andNot(listedCourses);
+		for (int id = allCourses.nextSetBit(0); id >= 0; id = allCourses.nextSetBit(id + 1)) {
+			Entity<String> missingCourse = new Entity<String>();
+			missingCourse.setName(dictionary.nameOf(id));
+			missingCourse.setPrerequisites(new String[0]);
+			courseInformation.add(missingCourse);
+		}
+		return courseInformation.toArray(new Entity[courseInformation.size()]);
+	}
+
+	/**
+	 * Gets the courses defined again with the same prerequisites in the last merge
+	 *
+	 * @return read only list of messages naming each course and both files
+	 */
+	public List<String> getDuplicates() {
+		return Collections.unmodifiableList(duplicates);
+	}
+
+	/**
+	 * Gets the courses defined again with different prerequisites in the last merge
+	 *
+	 * @return read only list of messages naming each course, both files and both sets of prerequisites
+	 */
+	public List<String> getConflicts() {
+		return Collections.unmodifiableList(conflicts);
+	}
+
+	/**
+	 * Gets the dictionary holding every name in the files of the last merge, which its entities share
+	 *
+	 * @return dictionary of the merged names
+	 */
+	public CourseDictionary getDictionary() {
+		return dictionary;
+	}
+
+	/**
+	 * Parses every file on the pool, each into a list of its courses
+	 */
+	private List<List<Entity<String>>> parseAll(List<String> fileNames) throws Exception {
+		ExecutorService pool = Executors.newFixedThreadPool(Math.max(1, Math.min(threads, fileNames.size())));
+		try {
+			List<Future<List<Entity<String>>>> futures = new ArrayList<Future<List<Entity<String>>>>();
+			for (final String fileName : fileNames) {
+				futures.add(pool.submit(new Callable<List<Entity<String>>>() {
+					public List<Entity<String>> call() throws Exception {
+						List<Entity<String>> courses = new ArrayList<Entity<String>>();
+						try (CourseCatalogReader reader = CourseSchedulerUtil.streamEntities(fileName)) {
+							while (reader.hasNext()) {
+								courses.add(reader.next());
+							}
+						}
+						return courses;
+					}
+				}));
+			}
+			List<List<Entity<String>>> parsed = new ArrayList<List<Entity<String>>>();
+			for (Future<List<Entity<String>>> future : futures) {
+				try {
+					parsed.add(future.get());
+				} catch (ExecutionException e) {
+					throw e.getCause() instanceof Exception ? (Exception) e.getCause() : e;
+				}
+			}
+			return parsed;
+		} finally {
+			pool.shutdownNow();
+		}
+	}
+
+	/**
+	 * Records a course defined a second time as a duplicate or a conflict
+	 */
+	private void report(Entity<String> first, String firstFile, Entity<String> again, String againFile) {
+		boolean sameFile = firstFile.equals(againFile);
+		if (new HashSet<String>(Arrays.asList(first.getPrerequisites()))
+				.equals(new HashSet<String>(Arrays.asList(again.getPrerequisites())))) {
+			duplicates.add(first.getName() + (sameFile ? " is defined twice in " + firstFile
+					: " is defined in both " + firstFile + " and " + againFile));
+		} else if (sameFile) {
+			conflicts.add(first.getName() + " is defined twice in " + firstFile + ", with prerequisites "
+					+ Arrays.toString(first.getPrerequisites()) + " and then "
+					+ Arrays.toString(again.getPrerequisites()) + ", keeping the first");
+		} else {
+			conflicts.add(first.getName() + " is defined in " + firstFile + " with prerequisites "
+					+ Arrays.toString(first.getPrerequisites()) + " and in " + againFile + " with prerequisites "
+					+ Arrays.toString(again.getPrerequisites()) + ", keeping the first");
+		}
+	}
+}
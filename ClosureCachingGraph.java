@@ -0,0 +1,504 @@
+import java.nio.IntBuffer;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+
+
+/**
+ * Filename:   ClosureCachingGraph.java
+ * Project:    p4
+ * Authors:    Aron Denenberg
+ *
+ * Graph that wraps another graph and remembers how many vertices can be reached from each vertex it
+ * has been asked about. For a course graph this is the number of courses that have to be taken before
+ * a course. CourseSchedulerUtil only uses it when it is given one, for example
+ * new CourseSchedulerUtil<String>(new ClosureCachingGraph<String>(new GraphImpl<String>())), so the
+ * cache and its upkeep are only paid for by callers that ask the same questions many times. All changes are passed on to the wrapped graph, and a change to the edges of a vertex only
+ * forgets the counts of that vertex and the vertices that can reach it, which are found through an
+ * incoming edges of the wrapped graph. A DependentsGraph, such as GraphImpl or PersistentGraphImpl, keeps
+ * those itself, for any other graph an index of them is kept alongside it. The index is only built once
+ * the graph is first changed through this class, so wrapping a read only graph costs nothing.
+ *
+ * It can also keep the vertices sorted, so a sorted view of them costs nothing beyond iterating it. The
+ * sorted set is only built the first time it is asked for and from then on is kept up to date as
+ * vertices are added and removed, O(log V) each.
+ *
+ * Many changes can be made as one batch between startBatch() and endBatch(), in which case the counts
+ * are forgotten with a single walk over incoming edges from every changed vertex at the end, instead of
+ * one walk per change.
+ *
+ * Counts and the sorted vertices are kept in concurrent collections and changes are made one at a time,
+ * so any number of threads can ask for counts at once. A count worked out while a change was being made
+ * is not remembered. Asking while another thread changes the graph is only safe if the wrapped graph
+ * allows it, as a ConcurrentGraphImpl does.
+ *
+ * Bugs or other notes: changes made directly to the wrapped graph are not seen, so once wrapped the
+ * graph should only be changed through this class.
+ *
+ * @param <T> type of a vertex
+ */
+public class ClosureCachingGraph<T> implements GraphADT<T> {
+
+    /**
+     * Graph that stores the vertices and edges
+     */
+    private GraphADT<T> delegate;
+
+    /**
+     * Store each vertex and the vertices that have an edge to it, null until the graph is first changed and
+     * always null for a DependentsGraph
+     */
+    private Map<T, Set<T>> dependentsMap;
+
+    /**
+     * Number of vertices reachable from each vertex that has been counted, only for vertices that can
+     * reach no cycle
+     */
+    private Map<T, Integer> closureSizes;
+
+    /**
+     * Every vertex in its natural order, null until getSortedVertices() is first called
+     */
+    private volatile NavigableSet<T> sortedVertices;
+
+    /**
+     * Increased when a change starts and again when it ends, so it is odd while a change is being made and
+     * a count is only remembered if it is the same even number before and after counting
+     */
+    private volatile long version;
+
+    /**
+     * Vertices whose edges changed since startBatch(), null when no batch is open
+     */
+    private Set<T> changed;
+
+
+    /**
+     * Wrap the given graph
+     *
+     * @param delegate is the graph to wrap
+     */
+    public ClosureCachingGraph(GraphADT<T> delegate) {
+        this.delegate = delegate;
+        closureSizes = new ConcurrentHashMap<T, Integer>();
+    }
+
+    /**
+     * Adds given vertex to the graph. A new vertex has no edges so no counts change
+     *
+     * @param vertex to add to the graph
+     */
+    public synchronized void addVertex(T vertex) {
+        if (vertex == null || delegate.getAllVertices().contains(vertex)) {
+        	return;
+        }
+        buildIndex();
+        delegate.addVertex(vertex);
+        if (dependentsMap != null) {
+        	dependentsMap.put(vertex, new HashSet<T>());
+        }
+        if (sortedVertices != null) {
+        	sortedVertices.add(vertex);
+        }
+    }
+
+    /**
+     * Removes the given vertex from the graph, forgetting the counts of every vertex that could reach it
+     *
+     * @param vertex to remove from the graph
+     */
+    public synchronized void removeVertex(T vertex) {
+    	buildIndex();
+    	if (vertex == null || !hasVertex(vertex)) {
+        	return;
+        }
+    	version++;
+    	if (changed != null) {
+    		// the vertex won't be there to walk from when the batch ends, so walk from its dependents
+    		changed.remove(vertex);
+    		changed.addAll(dependentsOf(vertex));
+    		closureSizes.remove(vertex);
+    	} else {
+    		invalidateAncestors(vertex);
+    	}
+    	if (dependentsMap != null) {
+    		for (T adjacent : delegate.getAdjacentVerticesOf(vertex)) {
+    			Set<T> dependents = dependentsMap.get(adjacent);
+    			if (dependents != null) {
+    				dependents.remove(vertex);
+    			}
+    		}
+    		dependentsMap.remove(vertex);
+    	}
+    	delegate.removeVertex(vertex);
+    	if (sortedVertices != null) {
+    		sortedVertices.remove(vertex);
+    	}
+    	version++;
+    }
+
+    /**
+     * Adds an edge between the two given vertices, forgetting the counts of vertex1 and every vertex that
+     * can reach it
+     *
+     * @param vertex1 is the vertex that the edge will be added from
+     * @param vertex2 is the vertex that the edge will be added to
+     */
+    public synchronized void addEdge(T vertex1, T vertex2) {
+        buildIndex();
+        if (vertex1 == null || vertex2 == null || !hasVertex(vertex1) || !hasVertex(vertex2)
+        		|| dependentsOf(vertex2).contains(vertex1)) {
+        	return;
+        }
+        version++;
+        delegate.addEdge(vertex1, vertex2);
+        if (dependentsMap != null) {
+        	dependentsMap.get(vertex2).add(vertex1);
+        }
+        invalidateAncestors(vertex1);
+        version++;
+    }
+
+    /**
+     * Removes the edge between the two given vertices, forgetting the counts of vertex1 and every vertex
+     * that can reach it
+     *
+     * @param vertex1 is the vertex that the edge will be removed from
+     * @param vertex2 is the vertex that the edge will be removed to
+     */
+    public synchronized void removeEdge(T vertex1, T vertex2) {
+    	buildIndex();
+    	if (vertex1 == null || vertex2 == null || !hasVertex(vertex1) || !hasVertex(vertex2)
+        		|| !dependentsOf(vertex2).contains(vertex1)) {
+        	return;
+        }
+    	version++;
+    	invalidateAncestors(vertex1);
+    	delegate.removeEdge(vertex1, vertex2);
+    	if (dependentsMap != null) {
+    		dependentsMap.get(vertex2).remove(vertex1);
+    	}
+    	version++;
+    }
+
+    /**
+     * Returns a set that contains all the vertices
+     *
+     * @return Set of all the vertices in the wrapped graph
+     */
+    public Set<T> getAllVertices() {
+        return delegate.getAllVertices();
+    }
+
+    /**
+     * Retrieves all the vertices that are adjacent to the given vertex
+     *
+     * @param vertex to check for adjacent vertices
+     * @return list of all vertices adjacent to the given vertex
+     */
+    public List<T> getAdjacentVerticesOf(T vertex) {
+        return delegate.getAdjacentVerticesOf(vertex);
+    }
+
+    /**
+     * Returns the vertices in their natural order. The first call sorts every vertex, after that the set is
+     * kept sorted as vertices change
+     *
+     * @return read only view of the vertices that stays up to date as they change. Iterating it while the
+     *         graph changes never throws, and sees some of the changes
+     * @throws ClassCastException if the vertices aren't Comparable
+     */
+    public NavigableSet<T> getSortedVertices() {
+    	NavigableSet<T> sorted = sortedVertices;
+    	if (sorted == null) {
+    		synchronized (this) {
+    			if (sortedVertices == null) {
+    				sortedVertices = new ConcurrentSkipListSet<T>(delegate.getAllVertices());
+    			}
+    			sorted = sortedVertices;
+    		}
+    	}
+    	return Collections.unmodifiableNavigableSet(sorted);
+    }
+
+    /**
+     * Gets the number of edges in the graph
+     *
+     * @return number of edges in the graph
+     */
+    public int size() {
+        return delegate.size();
+    }
+
+    /**
+     * Gets the number of vertices in the graph
+     *
+     * @return the number of vertices in the graph
+     */
+    public int order() {
+        return delegate.order();
+    }
+
+    /**
+     * Starts a batch of changes. Until endBatch() is called, counts are forgotten for every vertex whose
+     * edges change but not yet for the vertices that can reach them, so counts must not be asked for
+     */
+    public synchronized void startBatch() {
+    	if (changed == null) {
+    		version++; // odd until endBatch(), so nothing counted during the batch is remembered
+    		changed = new HashSet<T>();
+    	}
+    }
+
+    /**
+     * Ends a batch of changes, forgetting the counts of every vertex that can reach a changed vertex with
+     * one breadth first walk
+     */
+    public synchronized void endBatch() {
+    	if (changed == null) {
+    		return;
+    	}
+    	Set<T> batch = changed;
+    	changed = null;
+    	invalidateAncestors(batch);
+    	version++;
+    }
+
+    /**
+     * Gets the wrapped graph. It should only be read, not changed
+     *
+     * @return the wrapped graph
+     */
+    public GraphADT<T> getDelegate() {
+    	return delegate;
+    }
+
+    /**
+     * Counts the vertices that can be reached from the given vertex, not counting the vertex itself. The
+     * count is remembered until an edge it depends on changes, so asking again is O(1). -1 is never
+     * remembered, so a vertex that is added later or a cycle that is broken is always seen
+     *
+     * @param vertex to count from
+     * @return number of vertices reachable from the vertex, -1 if the vertex isn't in the graph or a
+     *         cycle can be reached from it
+     */
+    public int getClosureSize(T vertex) {
+    	Integer size = vertex == null ? null : closureSizes.get(vertex);
+    	if (size != null) {
+    		return size;
+    	}
+    	long before = version;
+    	int counted = countReachable(readable(delegate), vertex);
+    	if (vertex != null && counted >= 0 && (before & 1) == 0) {
+    		closureSizes.put(vertex, counted);
+    		if (version != before) {
+    			closureSizes.remove(vertex); // a change started while counting, so the count may be out of date
+    		}
+    	}
+    	return counted;
+    }
+
+    /**
+     * Gets a version of the graph that can be read several times over without seeing a change part way, the
+     * current snapshot for a ConcurrentGraphImpl and the graph itself for anything else
+     *
+     * @param graph to read
+     * @return graph to read from
+     */
+    static <T> GraphADT<T> readable(GraphADT<T> graph) {
+    	return graph instanceof ConcurrentGraphImpl ? ((ConcurrentGraphImpl<T>) graph).snapshot() : graph;
+    }
+
+    /**
+     * Depth first walk from the given vertex using an explicit stack, counting each vertex reached. Only
+     * reads the graph, so it can be used on a graph that isn't wrapped
+     *
+     * @param graph to walk
+     * @param vertex to count from
+     * @return number of vertices reachable from the vertex, -1 if the vertex isn't in the graph or a
+     *         cycle can be reached from it
+     */
+    static <T> int countReachable(GraphADT<T> graph, T vertex) {
+    	// an IndexedGraph can be walked by id without a list or a name per edge. Not a CompactGraphImpl that
+    	// has changed since it was frozen, whose arrays would have to be repacked first
+    	if (graph instanceof IndexedGraph
+    			&& !(graph instanceof CompactGraphImpl && !((CompactGraphImpl<T>) graph).isFrozen())) {
+    		return countReachableIds((IndexedGraph<T>) graph, vertex);
+    	}
+    	Set<T> allVertices = graph.getAllVertices();
+    	if (vertex == null || !allVertices.contains(vertex)) {
+    		return -1;
+    	}
+    	Set<T> finished = new HashSet<T>(); // vertices reached along with everything they have edges to
+    	Set<T> inProgress = new HashSet<T>(); // vertices currently on the stack, used to identify loops
+    	Deque<T> stack = new ArrayDeque<T>();
+    	Deque<Iterator<T>> edges = new ArrayDeque<Iterator<T>>(); // next edges to follow for each vertex on the stack
+    	stack.push(vertex);
+    	edges.push(graph.getAdjacentVerticesOf(vertex).iterator());
+    	inProgress.add(vertex);
+    	long scanned = 0; // edges followed, for the metrics
+    	while (!stack.isEmpty()) {
+    		if (edges.peek().hasNext()) {
+    			T adjacent = edges.peek().next();
+    			scanned++;
+    			if (inProgress.contains(adjacent)) {
+    				SchedulerMetrics.traversed(finished.size() + stack.size(), scanned);
+    				return -1;
+    			}
+    			if (!finished.contains(adjacent) && allVertices.contains(adjacent)) {
+    				stack.push(adjacent);
+    				edges.push(graph.getAdjacentVerticesOf(adjacent).iterator());
+    				inProgress.add(adjacent);
+    			}
+    		} else {
+    			T current = stack.pop();
+    			edges.pop();
+    			inProgress.remove(current);
+    			finished.add(current);
+    		}
+    	}
+    	SchedulerMetrics.traversed(finished.size(), scanned);
+    	return finished.size() - 1;
+    }
+
+    /**
+     * Same walk as countReachable over the int ids of an IndexedGraph, reading its adjacency buffers in
+     * place. The bit sets and stacks only grow as far as the ids the walk reaches
+     */
+    private static <T> int countReachableIds(IndexedGraph<T> graph, T vertex) {
+    	IntBuffer offsets = graph.offsetBuffer();
+    	IntBuffer targets = graph.targetBuffer();
+    	int start = vertex == null ? -1 : graph.idOf(vertex);
+    	if (start < 0) {
+    		return -1;
+    	}
+    	BitSet finished = new BitSet(); // ids reached along with everything they have edges to
+    	BitSet inProgress = new BitSet(); // ids currently on the stack, used to identify loops
+    	int[] stack = new int[16];
+    	int[] next = new int[16]; // position of the next edge to follow for each id on the stack
+    	int top = 0;
+    	int count = 0;
+    	stack[top] = start;
+    	next[top++] = offsets.get(start);
+    	inProgress.set(start);
+    	long scanned = 0; // edges followed, for the metrics
+    	while (top > 0) {
+    		int current = stack[top - 1];
+    		if (next[top - 1] < offsets.get(current + 1)) {
+    			int adjacent = targets.get(next[top - 1]++);
+    			scanned++;
+    			if (inProgress.get(adjacent)) {
+    				SchedulerMetrics.traversed(count + top, scanned);
+    				return -1;
+    			}
+    			if (!finished.get(adjacent)) {
+    				if (top == stack.length) {
+    					stack = Arrays.copyOf(stack, 2 * top);
+    					next = Arrays.copyOf(next, 2 * top);
+    				}
+    				stack[top] = adjacent;
+    				next[top++] = offsets.get(adjacent);
+    				inProgress.set(adjacent);
+    			}
+    		} else {
+    			top--;
+    			inProgress.clear(current);
+    			finished.set(current);
+    			count++;
+    		}
+    	}
+    	SchedulerMetrics.traversed(count, scanned);
+    	return count - 1;
+    }
+
+    /**
+     * Builds the index of incoming edges from the edges the wrapped graph already has. Only done once, and
+     * not at all for a DependentsGraph, which keeps incoming edges itself
+     */
+    private void buildIndex() {
+    	if (dependentsMap != null || delegate instanceof DependentsGraph) {
+    		return;
+    	}
+    	dependentsMap = new HashMap<T, Set<T>>();
+        for (T vertex : delegate.getAllVertices()) {
+        	dependentsMap.put(vertex, new HashSet<T>());
+        }
+        for (T vertex : delegate.getAllVertices()) {
+        	for (T adjacent : delegate.getAdjacentVerticesOf(vertex)) {
+        		Set<T> dependents = dependentsMap.get(adjacent);
+        		if (dependents != null) {
+        			dependents.add(vertex);
+        		}
+        	}
+        }
+    }
+
+    /**
+     * Checks whether a vertex is in the graph, once the index has been built
+     */
+    private boolean hasVertex(T vertex) {
+    	return dependentsMap != null ? dependentsMap.containsKey(vertex) : ((DependentsGraph<T>) delegate).hasVertex(vertex);
+    }
+
+    /**
+     * Gets the vertices with an edge to a vertex in the graph, once the index has been built
+     */
+    private Collection<T> dependentsOf(T vertex) {
+    	return dependentsMap != null ? dependentsMap.get(vertex) : ((DependentsGraph<T>) delegate).getDependentsOf(vertex);
+    }
+
+    /**
+     * Forgets the counts of the given vertex and every vertex that can reach it. During a batch the vertex
+     * is only recorded, and its own count forgotten
+     *
+     * @param vertex whose edges are changing
+     */
+    private void invalidateAncestors(T vertex) {
+    	if (changed != null) {
+    		changed.add(vertex);
+    		closureSizes.remove(vertex);
+    		return;
+    	}
+    	invalidateAncestors(Collections.singleton(vertex));
+    }
+
+    /**
+     * Forgets the counts of the given vertices and every vertex that can reach one of them, found with a
+     * breadth first walk over incoming edges
+     *
+     * @param vertices whose edges changed
+     */
+    private void invalidateAncestors(Set<T> vertices) {
+    	if (closureSizes.isEmpty()) {
+    		return; // nothing to forget
+    	}
+    	Set<T> seen = new HashSet<T>();
+    	Deque<T> queue = new ArrayDeque<T>();
+    	for (T vertex : vertices) {
+    		if (hasVertex(vertex) && seen.add(vertex)) {
+    			queue.add(vertex);
+    		}
+    	}
+    	while (!queue.isEmpty() && !closureSizes.isEmpty()) { // stop once there is nothing left to forget
+    		T current = queue.poll();
+    		closureSizes.remove(current);
+    		for (T dependent : dependentsOf(current)) {
+    			if (seen.add(dependent)) {
+    				queue.add(dependent);
+    			}
+    		}
+    	}
+    }
+}
@@ -0,0 +1,463 @@
+import java.nio.IntBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+
+/**
+ * Filename:   CompactGraphImpl.java
+ * Project:    p4
+ * Authors:    Aron Denenberg
+ *
+ * Graph that can be frozen into a compressed sparse row layout once it has been built. Every vertex
+ * is given a dense int id and, while frozen, the adjacent vertices of vertex id are the ids
+ * targets[offsets[id]] up to targets[offsets[id + 1]]. This avoids one list object per vertex and
+ * lets traversals walk plain int arrays.
+ *
+ * Changes are never made to the frozen arrays. A vertex whose edges change gets its own int array of
+ * adjacent ids that is used in place of its part of targets, so building the graph or editing a frozen
+ * one costs O(degree) per change and only the vertices that change use any extra memory. A removed vertex
+ * is only marked as removed, and edges to it are skipped when read. freeze() packs all of this back into
+ * the two arrays in one pass over the edges, and happens by itself the first time offsets() or targets()
+ * is read after a change. Reading adjacent vertices with getAdjacentVerticesOf never freezes the graph.
+ *
+ * Bugs or other notes: not thread safe while it is being changed, but reading a frozen graph never
+ * changes it. Ids are only stable while the graph stays frozen.
+ *
+ * @param <T> type of a vertex
+ */
+public class CompactGraphImpl<T> implements IndexedGraph<T> {
+
+    /**
+     * Smallest array of adjacent ids given to a vertex whose edges change
+     */
+    private static final int MIN_EDIT_CAPACITY = 4;
+
+    /**
+     * Maps each vertex to its id
+     */
+    private Map<T, Integer> ids;
+
+    /**
+     * Vertex stored for each id, null for ids of vertices removed since the last freeze
+     */
+    private List<T> vertices;
+
+    /**
+     * Start of each vertex's adjacent ids in targets, with one extra entry for the end of the last
+     * vertex. Only covers the vertices there were at the last freeze
+     */
+    private int[] offsets;
+
+    /**
+     * Adjacent ids of every vertex laid out one after another, as of the last freeze
+     */
+    private int[] targets;
+
+    /**
+     * Adjacent ids of each vertex whose edges changed since the last freeze, used in place of its part
+     * of targets. Null for vertices that haven't changed
+     */
+    private int[][] edits;
+
+    /**
+     * Number of ids in use in each array of edits
+     */
+    private int[] editSizes;
+
+    /**
+     * Number of edges to each vertex
+     */
+    private int[] inDegrees;
+
+    /**
+     * Number of edges in the graph, not counting edges to removed vertices that are still stored
+     */
+    private int edgeCount;
+
+    /**
+     * Number of vertices removed since the last freeze
+     */
+    private int removedCount;
+
+    /**
+     * Whether the graph has not changed since the last freeze
+     */
+    private boolean frozen;
+
+
+    /**
+     * Construct and initialize an empty graph that is frozen
+     */
+    public CompactGraphImpl() {
+        ids = new HashMap<T, Integer>();
+        vertices = new ArrayList<T>();
+        offsets = new int[1];
+        targets = new int[0];
+        edits = new int[0][];
+        editSizes = new int[0];
+        inDegrees = new int[0];
+        frozen = true;
+    }
+
+    /**
+     * Adds given vertex to the graph. Returns without error if the input is null or is a vertex that already
+     * exists in the graph
+     *
+     * @param vertex to add to the graph
+     */
+    public void addVertex(T vertex) {
+        if (vertex == null || ids.containsKey(vertex)) {
+        	return;
+        }
+        int id = vertices.size();
+        if (id == edits.length) {
+        	int capacity = Math.max(16, id * 2);
+        	edits = Arrays.copyOf(edits, capacity);
+        	editSizes = Arrays.copyOf(editSizes, capacity);
+        	inDegrees = Arrays.copyOf(inDegrees, capacity);
+        }
+        ids.put(vertex, id);
+        vertices.add(vertex);
+        frozen = false;
+    }
+
+    /**
+     * Removes the given vertex and all edges to or from it. Returns without error if the input is null or is a
+     * vertex that doesn't already exist in the graph
+     *
+     * @param vertex to remove from the graph
+     */
+    public void removeVertex(T vertex) {
+    	if (vertex == null || !ids.containsKey(vertex)) {
+        	return;
+        }
+    	int id = ids.remove(vertex);
+    	vertices.set(id, null);
+
+    	// edges from the vertex go with it, edges to it are left where they are and skipped from now on
+    	int[] adjacent = adjacentIds(id);
+    	int start = adjacentStart(id);
+    	int end = adjacentEnd(id);
+    	for (int i = start; i < end; i++) {
+    		if (adjacent[i] != id && vertices.get(adjacent[i]) != null) {
+    			inDegrees[adjacent[i]]--;
+    			edgeCount--;
+    		}
+    	}
+    	edgeCount -= inDegrees[id]; // includes an edge from the vertex to itself
+    	inDegrees[id] = 0;
+    	edits[id] = null;
+    	editSizes[id] = 0;
+    	removedCount++;
+    	frozen = false;
+    }
+
+    /**
+     * Adds an edge between the two given vertices if they are both not null, both exist in the graph, and an edge
+     * does not already exist between them.
+     *
+     * @param vertex1 is the vertex that the edge will be added from
+     * @param vertex2 is the vertex that the edge will be added to
+     */
+    public void addEdge(T vertex1, T vertex2) {
+        if (vertex1 == null || vertex2 == null || !hasVertex(vertex1) || !hasVertex(vertex2)
+        		|| hasEdge(vertex1, vertex2)) {
+        	return;
+        }
+        int id1 = ids.get(vertex1);
+        int id2 = ids.get(vertex2);
+        edit(id1);
+        if (editSizes[id1] == edits[id1].length) {
+        	edits[id1] = Arrays.copyOf(edits[id1], edits[id1].length * 2);
+        }
+        edits[id1][editSizes[id1]++] = id2;
+        inDegrees[id2]++;
+        edgeCount++;
+    }
+
+    /**
+     * Removes the edge between the two given vertices if they are both not null, both exist in the graph, and an
+     * edge does already exist between them.
+     *
+     * @param vertex1 is the vertex that the edge will be removed from
+     * @param vertex2 is the vertex that the edge will be removed to
+     */
+    public void removeEdge(T vertex1, T vertex2) {
+    	if (vertex1 == null || vertex2 == null || !hasVertex(vertex1) || !hasVertex(vertex2)
+        		|| !hasEdge(vertex1, vertex2)) {
+        	return;
+        }
+    	int id1 = ids.get(vertex1);
+    	int id2 = ids.get(vertex2);
+    	edit(id1);
+    	int[] adjacent = edits[id1];
+    	int i = 0;
+    	while (adjacent[i] != id2) {
+    		i++;
+    	}
+    	// shift the rest down so adjacent vertices keep the order their edges were added in
+    	System.arraycopy(adjacent, i + 1, adjacent, i, editSizes[id1] - i - 1);
+    	editSizes[id1]--;
+    	inDegrees[id2]--;
+    	edgeCount--;
+    }
+
+    /**
+     * Returns a read only set that contains all the vertices
+     *
+     * @return Set of all the vertices in the graph
+     */
+    public Set<T> getAllVertices() {
+        return Collections.unmodifiableSet(ids.keySet());
+    }
+
+    /**
+     * Retrieves all the vertices that are adjacent to the given vertex. Never freezes the graph, so it can be
+     * called between changes at O(degree) cost
+     *
+     * @param vertex to check for adjacent vertices
+     * @return read only copy of the vertices adjacent to the given vertex, which doesn't see later changes.
+     *         Null if the vertex isn't in the graph
+     */
+    @SuppressWarnings("unchecked")
+    public List<T> getAdjacentVerticesOf(T vertex) {
+    	Integer id = vertex == null ? null : ids.get(vertex);
+        if (id == null) {
+        	return null;
+        }
+        int[] adjacent = adjacentIds(id);
+        int end = adjacentEnd(id);
+        Object[] copy = new Object[end - adjacentStart(id)];
+        int size = 0;
+        for (int i = adjacentStart(id); i < end; i++) {
+        	T adjacentVertex = vertices.get(adjacent[i]);
+        	if (adjacentVertex != null) { // skip edges to removed vertices
+        		copy[size++] = adjacentVertex;
+        	}
+        }
+        return (List<T>) Collections.unmodifiableList(Arrays.asList(size == copy.length ? copy : Arrays.copyOf(copy, size)));
+    }
+
+    /**
+     * Checks whether the graph has the given value as a vertex
+     *
+     * @param vertex to check if it exists in the graph
+     * @return true if vertex exists in the graph, false otherwise
+     */
+    public boolean hasVertex(T vertex) {
+    	return vertex != null && ids.containsKey(vertex);
+    }
+
+    /**
+     * Gets the number of vertices in the graph
+     *
+     * @return the number of vertices in the graph
+     */
+    public int order() {
+        return ids.size();
+    }
+
+    /**
+     * Gets the number of edges in the graph
+     *
+     * @return number of edges in the graph
+     */
+    public int size() {
+        return edgeCount;
+    }
+
+    /**
+     * Packs the graph into the compressed sparse row arrays and gives the vertices dense ids from 0 to
+     * order() - 1. Adjacent vertices keep the order their edges were added in. Does nothing if the graph
+     * is already frozen
+     */
+    public void freeze() {
+    	if (frozen) {
+    		return;
+    	}
+
+    	// renumber the remaining vertices so the ids have no gaps left by removed vertices
+    	int[] newId = new int[vertices.size()];
+    	List<T> packed = removedCount == 0 ? vertices : new ArrayList<T>(ids.size());
+    	int[] newInDegrees = removedCount == 0 ? inDegrees : new int[Math.max(16, ids.size())];
+    	for (int id = 0, next = 0; id < vertices.size(); id++) {
+    		T vertex = vertices.get(id);
+    		if (vertex == null) {
+    			newId[id] = -1;
+    			continue;
+    		}
+    		newId[id] = next;
+    		if (removedCount > 0) {
+    			ids.put(vertex, next);
+    			packed.add(vertex);
+    			newInDegrees[next] = inDegrees[id];
+    		}
+    		next++;
+    	}
+
+    	// copy each vertex's adjacent ids into place, leaving out edges to removed vertices
+    	int[] newOffsets = new int[ids.size() + 1];
+    	int[] newTargets = new int[edgeCount];
+    	int position = 0;
+    	for (int id = 0; id < vertices.size(); id++) {
+    		if (newId[id] < 0) {
+    			continue;
+    		}
+    		int[] adjacent = adjacentIds(id);
+    		int end = adjacentEnd(id);
+    		for (int i = adjacentStart(id); i < end; i++) {
+    			if (newId[adjacent[i]] >= 0) {
+    				newTargets[position++] = newId[adjacent[i]];
+    			}
+    		}
+    		newOffsets[newId[id] + 1] = position;
+    	}
+
+    	vertices = packed;
+    	offsets = newOffsets;
+    	targets = newTargets;
+    	inDegrees = newInDegrees;
+    	edits = new int[newInDegrees.length][];
+    	editSizes = new int[newInDegrees.length];
+    	removedCount = 0;
+    	frozen = true;
+    }
+
+    /**
+     * Indicates whether the graph is currently frozen
+     *
+     * @return true if the graph hasn't changed since it was last packed into the compressed sparse row
+     *         arrays, false otherwise
+     */
+    public boolean isFrozen() {
+    	return frozen;
+    }
+
+    /**
+     * Gets the id of a vertex. Only stable while the graph stays frozen, and may be order() or more after
+     * vertices are removed until the next freeze
+     *
+     * @param vertex to find the id of
+     * @return id of the vertex, -1 if the vertex isn't in the graph
+     */
+    public int idOf(T vertex) {
+    	Integer id = vertex == null ? null : ids.get(vertex);
+    	return id == null ? -1 : id;
+    }
+
+    /**
+     * Gets the vertex with the given id. Only stable while the graph stays frozen
+     *
+     * @param id of the vertex, from 0 to order() - 1 while frozen
+     * @return the vertex with the given id, null for the id of a vertex removed since the last freeze
+     */
+    public T vertexOf(int id) {
+    	return vertices.get(id);
+    }
+
+    /**
+     * Gets the start of a vertex's adjacent ids in the targets array. Freezes the graph if needed
+     *
+     * @return array of offsets with order() + 1 entries, must not be modified
+     */
+    public int[] offsets() {
+    	freeze();
+    	return offsets;
+    }
+
+    /**
+     * Gets the adjacent ids of every vertex laid out one after another. Freezes the graph if needed
+     *
+     * @return array of adjacent ids with size() entries, must not be modified
+     */
+    public int[] targets() {
+    	freeze();
+    	return targets;
+    }
+
+    /**
+     * Gets a buffer over the offsets array without copying it. Freezes the graph if needed
+     *
+     * @return buffer of offsets with order() + 1 entries, must not be modified
+     */
+    public IntBuffer offsetBuffer() {
+    	return IntBuffer.wrap(offsets());
+    }
+
+    /**
+     * Gets a buffer over the targets array without copying it. Freezes the graph if needed
+     *
+     * @return buffer of adjacent ids with size() entries, must not be modified
+     */
+    public IntBuffer targetBuffer() {
+    	return IntBuffer.wrap(targets());
+    }
+
+    /**
+     * Gives a vertex its own array of adjacent ids, copied from targets, so its edges can be changed
+     * without touching the frozen arrays. Does nothing if it already has one
+     */
+    private void edit(int id) {
+    	frozen = false;
+    	if (edits[id] != null) {
+    		return;
+    	}
+    	int start = adjacentStart(id);
+    	int end = adjacentEnd(id);
+    	edits[id] = new int[Math.max(MIN_EDIT_CAPACITY, (end - start) * 2)];
+    	System.arraycopy(targets, start, edits[id], 0, end - start);
+    	editSizes[id] = end - start;
+    }
+
+    /**
+     * Gets the array holding a vertex's adjacent ids, from adjacentStart(id) up to adjacentEnd(id)
+     */
+    private int[] adjacentIds(int id) {
+    	return edits[id] != null ? edits[id] : targets;
+    }
+
+    /**
+     * Gets the first index of a vertex's adjacent ids in adjacentIds(id)
+     */
+    private int adjacentStart(int id) {
+    	if (edits[id] != null) {
+    		return 0;
+    	}
+    	return id < offsets.length - 1 ? offsets[id] : 0;
+    }
+
+    /**
+     * Gets the index after the last of a vertex's adjacent ids in adjacentIds(id)
+     */
+    private int adjacentEnd(int id) {
+    	if (edits[id] != null) {
+    		return editSizes[id];
+    	}
+    	return id < offsets.length - 1 ? offsets[id + 1] : 0; // vertices added since the last freeze have no edges yet
+    }
+
+    /**
+     * Checks whether an edge exists between two vertices that are both in the graph
+     *
+     * @param vertex1 is the from vertex to check for an edge
+     * @param vertex2 is the to vertex to check for an edge
+     * @return boolean value saying whether or not an edge exists between the two vertices
+     */
+    private boolean hasEdge(T vertex1, T vertex2) {
+    	int id1 = ids.get(vertex1);
+    	int id2 = ids.get(vertex2);
+    	int[] adjacent = adjacentIds(id1);
+    	int end = adjacentEnd(id1);
+    	for (int i = adjacentStart(id1); i < end; i++) {
+    		if (adjacent[i] == id2) {
+    			return true;
+    		}
+    	}
+    	return false;
+    }
+}
@@ -0,0 +1,178 @@
+import java.util.List;
+import java.util.Set;
+import java.util.function.UnaryOperator;
+
+
+/**
+ * Filename:   ConcurrentGraphImpl.java
+ * Project:    p4
+ * Authors:    Aron Denenberg
+ *
+ * Thread safe graph for many reader threads and occasional writers. The graph is always an immutable
+ * GraphSnapshot held in a volatile field. Readers just read the current snapshot, with no locking, and
+ * are never affected by a change made after they took it. Writers take a lock so they don't lose each
+ * other's changes, build the next snapshot (which shares all unchanged structure with the current one)
+ * and publish it with a single volatile write.
+ *
+ * Bugs or other notes: each GraphADT method reads whichever snapshot is current when it is called, so
+ * work that reads the graph several times, such as a traversal, should take snapshot() once and read
+ * that. The list from getAdjacentVerticesOf is read only.
+ *
+ * @param <T> type of a vertex
+ */
+public class ConcurrentGraphImpl<T> implements DependentsGraph<T> {
+
+    /**
+     * Snapshot readers currently see
+     */
+    private volatile GraphSnapshot<T> current;
+
+    /**
+     * Lock held by writers while they build and publish the next snapshot
+     */
+    private final Object writeLock = new Object();
+
+
+    /**
+     * Construct and initialize an empty graph
+     */
+    public ConcurrentGraphImpl() {
+        this(GraphSnapshot.<T>empty());
+    }
+
+    /**
+     * Construct a graph starting from the given snapshot
+     *
+     * @param snapshot is the first version of the graph
+     */
+    public ConcurrentGraphImpl(GraphSnapshot<T> snapshot) {
+        current = snapshot;
+    }
+
+    /**
+     * Gets the current version of the graph. The snapshot never changes, so every read of it is consistent
+     * with every other however the graph is changed afterwards
+     *
+     * @return the current snapshot
+     */
+    public GraphSnapshot<T> snapshot() {
+    	return current;
+    }
+
+    /**
+     * Applies several changes as one new version, so readers see either none of them or all of them
+     *
+     * @param change builds the next snapshot from the current one, called while holding the write lock
+     */
+    public void update(UnaryOperator<GraphSnapshot<T>> change) {
+    	synchronized (writeLock) {
+    		current = change.apply(current);
+    	}
+    }
+
+    /**
+     * Adds given vertex to the graph. Returns without error if the input is null or is a vertex that already
+     * exists in the graph
+     *
+     * @param vertex to add to the graph
+     */
+    public void addVertex(T vertex) {
+    	synchronized (writeLock) {
+    		current = current.withVertex(vertex);
+    	}
+    }
+
+    /**
+     * Removes the given vertex and all edges to or from it. Returns without error if the input is null or is a
+     * vertex that doesn't already exist in the graph
+     *
+     * @param vertex to remove from the graph
+     */
+    public void removeVertex(T vertex) {
+    	synchronized (writeLock) {
+    		current = current.withoutVertex(vertex);
+    	}
+    }
+
+    /**
+     * Adds an edge between the two given vertices if they both exist in the graph and an edge does not already
+     * exist between them
+     *
+     * @param vertex1 is the vertex that the edge will be added from
+     * @param vertex2 is the vertex that the edge will be added to
+     */
+    public void addEdge(T vertex1, T vertex2) {
+    	synchronized (writeLock) {
+    		current = current.withEdge(vertex1, vertex2);
+    	}
+    }
+
+    /**
+     * Removes the edge between the two given vertices if it exists
+     *
+     * @param vertex1 is the vertex that the edge will be removed from
+     * @param vertex2 is the vertex that the edge will be removed to
+     */
+    public void removeEdge(T vertex1, T vertex2) {
+    	synchronized (writeLock) {
+    		current = current.withoutEdge(vertex1, vertex2);
+    	}
+    }
+
+    /**
+     * Returns a read only set that contains all the vertices of the current snapshot
+     *
+     * @return Set of all the vertices in the graph
+     */
+    public Set<T> getAllVertices() {
+        return current.getAllVertices();
+    }
+
+    /**
+     * Retrieves all the vertices that are adjacent to the given vertex in the current snapshot
+     *
+     * @param vertex to check for adjacent vertices
+     * @return read only list of all vertices adjacent to the given vertex, null if the vertex isn't in the graph
+     */
+    public List<T> getAdjacentVerticesOf(T vertex) {
+        return current.getAdjacentVerticesOf(vertex);
+    }
+
+    /**
+     * Retrieves all the vertices that have an edge to the given vertex in the current snapshot
+     *
+     * @param vertex to check for incoming edges
+     * @return read only list of all vertices with an edge to the given vertex, null if the vertex isn't in the graph
+     */
+    public List<T> getDependentsOf(T vertex) {
+        return current.getDependentsOf(vertex);
+    }
+
+    /**
+     * Checks whether the current snapshot has the given value as a vertex
+     *
+     * @param vertex to check if it exists in the graph
+     * @return true if vertex exists in the graph, false otherwise
+     */
+    public boolean hasVertex(T vertex) {
+        return current.hasVertex(vertex);
+    }
+
+    /**
+     * Gets the number of edges in the current snapshot
+     *
+     * @return number of edges in the graph
+     */
+    public int size() {
+        return current.size();
+    }
+
+    /**
+     * Gets the number of vertices in the current snapshot
+     *
+     * @return the number of vertices in the graph
+     */
+    public int order() {
+        return current.order();
+    }
+}
@@ -0,0 +1,241 @@
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+import org.json.simple.parser.ContentHandler;
+import org.json.simple.parser.JSONParser;
+import org.json.simple.parser.ParseException;
+
+/**
+ * Filename:   CourseCatalogReader.java
+ * Project:    p4
+ * Authors:    Aron Denenberg
+ *
+ * Streams the "courses" array of a catalog json file one course at a time. The file is read token by
+ * token through json-simple's ContentHandler interface and parsing is paused after every course, so
+ * only the course currently being read is ever held in memory.
+ *
+ * When given a CourseDictionary every name is replaced by the dictionary's shared copy as it is read, so
+ * a course named in many prerequisite lists is only held in memory once.
+ *
+ * The input is closed once the whole file has been read or reading it fails. A caller that may stop
+ * before the end should close the reader itself, for example with try-with-resources.
+ *
+ * Bugs or other notes: courses missing a "prerequisites" key are returned with no prerequisites, a
+ * course missing its "name" is an error
+ */
+public class CourseCatalogReader implements Iterator<Entity<String>>, ContentHandler, Closeable {
+
+	// field variables
+	private Reader reader; // source of the json text, closed once the whole file has been read or reading fails
+	private JSONParser parser; // parser that is resumed each time another course is requested
+	private CourseDictionary dictionary; // shares the names read, null to keep the parser's strings
+	private Entity<String> pending; // course that has been read but not yet returned by next()
+	private boolean done; // indicator as to whether the end of the file has been reached
+
+	// parse state, depth is 1 inside the top level object, 2 inside the courses array and so on
+	private int depth;
+	private boolean coursesEntry; // true while reading the value of the top level "courses" key
+	private boolean inCourses; // true while inside the courses array
+	private boolean inPrerequisites; // true while inside the prerequisites array of a course
+	private String field; // key of the entry currently being read inside a course
+	private String name; // name of the course currently being read
+	private List<String> prerequisites; // prerequisites of the course currently being read
+
+	/**
+	 * Constructor for the class. No input is read until the first course is requested
+	 *
+	 * @param reader is the source of the catalog json text
+	 */
+	public CourseCatalogReader(Reader reader) {
+		this(reader, null);
+	}
+
+	/**
+	 * Constructor for the class that interns every name read into the given dictionary
+	 *
+	 * @param reader is the source of the catalog json text
+	 * @param dictionary is where names are interned, null to not intern them
+	 */
+	public CourseCatalogReader(Reader reader, CourseDictionary dictionary) {
+		this.reader = reader;
+		this.parser = new JSONParser();
+		this.dictionary = dictionary;
+	}
+
+	/**
+	 * Indicates whether another course is left in the catalog, reading ahead to the end of the next
+	 * course if needed
+	 *
+	 * @return true if there is another course to return, false otherwise
+	 * @throws IllegalStateException if the json text can't be read or parsed, or a course has no name
+	 */
+	@Override
+	public boolean hasNext() {
+		if (pending == null && !done) {
+			advance();
+		}
+		return pending != null;
+	}
+
+	/**
+	 * Returns the next course in the catalog
+	 *
+	 * @return entity holding the name and prerequisites of the next course
+	 * @throws NoSuchElementException if every course has already been returned
+	 */
+	@Override
+	public Entity<String> next() {
+		if (!hasNext()) {
+			throw new NoSuchElementException();
+		}
+		Entity<String> course = pending;
+		pending = null;
+		return course;
+	}
+
+	/**
+	 * Stops reading and closes the input. Courses not yet returned are skipped, and hasNext() is false from
+	 * then on. Closing a reader that is already closed does nothing
+	 *
+	 * @throws IOException if the input can't be closed
+	 */
+	@Override
+	public void close() throws IOException {
+		done = true;
+		pending = null;
+		reader.close();
+	}
+
+	/**
+	 * Resumes the parser until either another course has been read or the end of the input is reached.
+	 * The input is closed at the end or when reading fails
+	 */
+	private void advance() {
+		try {
+			parser.parse(reader, this, true);
+			// the parser only returns without a pending course once the whole input has been consumed
+			if (pending == null) {
+				close();
+			}
+		} catch (IOException | ParseException e) {
+			closeQuietly();
+			throw new IllegalStateException("Error reading course catalog: " + e, e);
+		} catch (RuntimeException e) {
+			closeQuietly(); // such as a course without a name
+			throw e;
+		}
+	}
+
+	/**
+	 * Closes the input after an error, when there is nothing more to report about it
+	 */
+	private void closeQuietly() {
+		try {
+			close();
+		} catch (IOException e) {
+			// the error that stopped reading is the one worth reporting
+		}
+	}
+
+	@Override
+	public void startJSON() {
+	}
+
+	@Override
+	public void endJSON() {
+		done = true;
+	}
+
+	@Override
+	public boolean startObject() {
+		depth++;
+		if (inCourses && depth == 3) {
+			name = null;
+			prerequisites = new ArrayList<String>();
+		}
+		return true;
+	}
+
+	/**
+	 * Closes the current object. When the object is a course the course is stored as pending and
+	 * parsing is paused by returning false
+	 *
+	 * @throws IllegalStateException if the course has no name
+	 */
+	@Override
+	public boolean endObject() {
+		depth--;
+		if (inCourses && depth == 2) {
+			if (name == null) {
+				throw new IllegalStateException("Course without a name in course catalog, prerequisites " + prerequisites);
+			}
+			pending = new Entity<String>();
+			pending.setName(name);
+			pending.setPrerequisites(prerequisites.toArray(new String[prerequisites.size()]));
+			return false;
+		}
+		return true;
+	}
+
+	@Override
+	public boolean startObjectEntry(String key) {
+		if (depth == 1) {
+			coursesEntry = "courses".equals(key);
+		} else if (inCourses && depth == 3) {
+			field = key;
+		}
+		return true;
+	}
+
+	@Override
+	public boolean endObjectEntry() {
+		if (depth == 1) {
+			coursesEntry = false;
+		}
+		return true;
+	}
+
+	@Override
+	public boolean startArray() {
+		depth++;
+		if (coursesEntry && depth == 2) {
+			inCourses = true;
+		} else if (inCourses && depth == 4 && "prerequisites".equals(field)) {
+			inPrerequisites = true;
+		}
+		return true;
+	}
+
+	@Override
+	public boolean endArray() {
+		depth--;
+		if (inPrerequisites && depth == 3) {
+			inPrerequisites = false;
+		} else if (inCourses && depth == 1) {
+			inCourses = false;
+		}
+		return true;
+	}
+
+	@Override
+	public boolean primitive(Object value) {
+		if (inCourses && depth == 3 && "name".equals(field)) {
+			name = intern((String) value);
+		} else if (inPrerequisites && depth == 4) {
+			prerequisites.add(intern((String) value));
+		}
+		return true;
+	}
+
+	/**
+	 * Gets the dictionary's copy of a name, or the name itself without a dictionary
+	 */
+	private String intern(String value) {
+		return dictionary == null || value == null ? value : dictionary.canonical(value);
+	}
+}
@@ -0,0 +1,185 @@
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+
+/**
+ * Filename:   CourseDictionary.java
+ * Project:    p4
+ * Authors:    Aron Denenberg
+ *
+ * Gives every course name a dense int id, 0 for the first name seen, 1 for the next and so on. Each name
+ * is hashed once when it is first loaded and one String and one Integer are kept per course, so entities
+ * and graphs built through the dictionary share those objects instead of holding a copy of the name in
+ * every prerequisite array and adjacency list. Graphs can also be built on the ids themselves, where
+ * equality is an int compare, and the names looked up only when results are printed.
+ *
+ * Bugs or other notes: ids are never reused or removed
+ */
+public class CourseDictionary {
+
+	// field variables
+	private Map<String, Integer> ids; // id of each name, the Integer stored is the one shared for that id
+	private List<String> names; // name of each id
+
+	/**
+	 * Constructor for the class. Creates an empty dictionary
+	 */
+	public CourseDictionary() {
+		ids = new HashMap<String, Integer>();
+		names = new ArrayList<String>();
+	}
+
+	/**
+	 * Gets the id of a name, giving it the next id if it doesn't have one yet
+	 *
+	 * @param name of the course
+	 * @return id of the course
+	 * @throws IllegalArgumentException if name is null
+	 */
+	public int intern(String name) {
+		return box(name);
+	}
+
+	/**
+	 * Gets the shared Integer of a name's id, giving it the next id if it doesn't have one yet. Every call
+	 * with an equal name returns the same object
+	 *
+	 * @param name of the course
+	 * @return id of the course
+	 * @throws IllegalArgumentException if name is null
+	 */
+	public Integer box(String name) {
+		if (name == null) {
+			throw new IllegalArgumentException("name can't be null");
+		}
+		Integer id = ids.get(name);
+		if (id == null) {
+			id = Integer.valueOf(names.size());
+			ids.put(name, id);
+			names.add(name);
+		}
+		return id;
+	}
+
+	/**
+	 * Gets the shared copy of a name, adding it to the dictionary if it isn't in it yet
+	 *
+	 * @param name of the course
+	 * @return the String kept by the dictionary that is equal to name
+	 * @throws IllegalArgumentException if name is null
+	 */
+	public String canonical(String name) {
+		return names.get(intern(name));
+	}
+
+	/**
+	 * Gets the id of a name without adding it
+	 *
+	 * @param name of the course
+	 * @return id of the course, -1 if it isn't in the dictionary
+	 */
+	public int idOf(String name) {
+		Integer id = name == null ? null : ids.get(name);
+		return id == null ? -1 : id;
+	}
+
+	/**
+	 * Gets the name of an id
+	 *
+	 * @param id of the course
+	 * @return name of the course
+	 * @throws IndexOutOfBoundsException if no name has the id
+	 */
+	public String nameOf(int id) {
+		return names.get(id);
+	}
+
+	/**
+	 * Gets the names of a list of ids, such as an order computed on a graph of ids
+	 *
+	 * @param ids of the courses
+	 * @return names of the courses in the same order
+	 */
+	public List<String> namesOf(List<Integer> ids) {
+		List<String> result = new ArrayList<String>(ids.size());
+		for (int id : ids) {
+			result.add(names.get(id));
+		}
+		return result;
+	}
+
+	/**
+	 * Gets the number of names in the dictionary, which is also the next id to be given out
+	 *
+	 * @return number of names
+	 */
+	public int size() {
+		return names.size();
+	}
+
+	/**
+	 * Makes a course whose name and prerequisites are all the shared copies of the given course's names
+	 *
+	 * @param course whose names are interned
+	 * @return course with the same names
+	 */
+	public Entity<String> canonical(Entity<String> course) {
+		Entity<String> result = new Entity<String>();
+		result.setName(canonical(course.getName()));
+		String[] prerequisites = course.getPrerequisites();
+		String[] canonicalPrerequisites = new String[prerequisites.length];
+		for (int i = 0; i < prerequisites.length; i++) {
+			canonicalPrerequisites[i] = canonical(prerequisites[i]);
+		}
+		result.setPrerequisites(canonicalPrerequisites);
+		return result;
+	}
+
+	/**
+	 * Makes a course whose name and prerequisites are the ids of the given course's names
+	 *
+	 * @param course to encode
+	 * @return course with the same names as ids
+	 */
+	public Entity<Integer> encode(Entity<String> course) {
+		Entity<Integer> result = new Entity<Integer>();
+		result.setName(box(course.getName()));
+		String[] prerequisites = course.getPrerequisites();
+		Integer[] encodedPrerequisites = new Integer[prerequisites.length];
+		for (int i = 0; i < prerequisites.length; i++) {
+			encodedPrerequisites[i] = box(prerequisites[i]);
+		}
+		result.setPrerequisites(encodedPrerequisites);
+		return result;
+	}
+
+	/**
+	 * Makes a course with the names of the given course's ids
+	 *
+	 * @param course to decode
+	 * @return course with the same ids as names
+	 */
+	public Entity<String> decode(Entity<Integer> course) {
+		Entity<String> result = new Entity<String>();
+		result.setName(nameOf(course.getName()));
+		Integer[] prerequisites = course.getPrerequisites();
+		String[] names = new String[prerequisites.length];
+		for (int i = 0; i < prerequisites.length; i++) {
+			names[i] = nameOf(prerequisites[i]);
+		}
+		result.setPrerequisites(names);
+		return result;
+	}
+
+	/**
+	 * Gets every name in id order
+	 *
+	 * @return array where entry id is the name of that id
+	 */
+	public String[] toArray() {
+		return names.toArray(new String[names.size()]);
+	}
+
+}
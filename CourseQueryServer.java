@@ -0,0 +1,305 @@
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+
+import org.json.simple.JSONValue;
+
+/**
+ * Filename:   CourseQueryServer.java
+ * Project:    p4
+ * Authors:    Aron Denenberg
+ *
+ * Serves course planning queries over a simple line protocol on localhost, so one warm process can answer
+ * many advisors instead of starting a JVM per question. The catalog is loaded once, and the course list
+ * and order are worked out up front. MINIMAL counts are worked out the first time each course is asked
+ * about and remembered in a ClosureCachingGraph, so the server starts answering straight away even for a
+ * large catalog, and any number of connections can be served at once.
+ *
+ * Each request is one line holding one or more commands separated by ';'. The reply is one line per
+ * command, in the same order, followed by an empty line, so a batch of questions takes one round trip.
+ * A course name that holds ';' or starts with '"' can be given as a json string, MINIMAL "A;B". QUIT
+ * ends the batch it is in, the replies before it are still followed by the empty line. Commands are
+ *
+ *   COURSES            every course, sorted                  OK ["CS200","CS300"]
+ *   ORDER              an order to take every course in      OK ["CS200","CS300"] or ERR Can't complete all courses!
+ *   FEASIBLE           whether every course can be taken     OK true
+ *   MINIMAL <course>   number of courses needed first        OK 2, -1 if it can't be completed or doesn't exist
+ *   QUIT               closes the connection
+ *
+ * Lists are json arrays so course names may hold any characters. Unknown commands get an ERR reply.
+ *
+ * Each connection is handled on its own thread. When the JVM has virtual threads (Java 21 and later)
+ * they are used, otherwise a pool of platform threads that grows as needed.
+ *
+ * Usage: java CourseQueryServer catalog.json [port]
+ *
+ * Bugs or other notes: the catalog can't be changed while the server runs, start a new server to load
+ * a new catalog
+ */
+public class CourseQueryServer implements Closeable {
+
+	// longest wait in milliseconds between attempts when accepting connections keeps failing
+	private static final long MAX_BACKOFF = 1000;
+
+	// field variables
+	private String courses; // json array of every course, sorted
+	private String order; // json array of the order to take the courses in, null if there is none
+	private boolean feasible; // indicator as to whether every course can be completed
+	private ClosureCachingGraph<String> counts; // catalog, remembering the courses needed before each course asked about
+	private ServerSocket socket; // listens for connections, null until started
+	private ExecutorService connections; // runs one task per connection, null until started
+	private Set<Socket> openConnections = ConcurrentHashMap.newKeySet(); // connections accepted and not yet closed
+
+	/**
+	 * Constructor for the class. Works out the course list and order from the given courses, which must not
+	 * be changed while the server runs
+	 *
+	 * @param scheduler has the catalog loaded
+	 */
+	public CourseQueryServer(CourseSchedulerUtil<String> scheduler) {
+		courses = JSONValue.toJSONString(new ArrayList<String>(scheduler.getAllCourses()));
+		try {
+			order = JSONValue.toJSONString(scheduler.getSubjectOrder());
+			feasible = true;
+		} catch (Exception e) {
+			order = null;
+			feasible = false;
+		}
+		GraphADT<String> graph = scheduler.getGraph();
+		counts = graph instanceof ClosureCachingGraph ? (ClosureCachingGraph<String>) graph
+				: new ClosureCachingGraph<String>(graph);
+	}
+
+	/**
+	 * Loads a catalog file into a new server
+	 *
+	 * @param fileName is the json catalog to serve
+	 * @return server that hasn't been started
+	 * @throws Exception like FileNotFound, JsonParseException
+	 */
+	public static CourseQueryServer load(String fileName) throws Exception {
+		CourseSchedulerUtil<String> scheduler = new CourseSchedulerUtil<String>();
+		scheduler.constructGraph(CourseSchedulerUtil.createEntity(fileName));
+		return new CourseQueryServer(scheduler);
+	}
+
+	/**
+	 * Starts listening on localhost. Connections are accepted on a background thread
+	 *
+	 * @param port to listen on, 0 for any free port
+	 * @throws IOException if the port can't be opened
+	 * @throws IllegalStateException if the server was already started
+	 */
+	public synchronized void start(int port) throws IOException {
+		if (socket != null) {
+			throw new IllegalStateException("Server already started");
+		}
+		socket = new ServerSocket(port, 1024, InetAddress.getLoopbackAddress());
+		connections = newConnectionExecutor();
+		Thread acceptor = new Thread(this::accept, "course-query-server");
+		acceptor.setDaemon(true);
+		acceptor.start();
+	}
+
+	/**
+	 * Gets the port the server is listening on
+	 *
+	 * @return port number, -1 if the server hasn't been started
+	 */
+	public synchronized int getPort() {
+		return socket == null ? -1 : socket.getLocalPort();
+	}
+
+	/**
+	 * Stops listening and closes every open connection, which also wakes the threads waiting to read from them
+	 */
+	@Override
+	public synchronized void close() throws IOException {
+		if (socket != null) {
+			socket.close();
+			connections.shutdownNow();
+			for (Socket connection : openConnections) {
+				closeQuietly(connection);
+			}
+			openConnections.clear();
+		}
+	}
+
+	/**
+	 * Answers one command
+	 *
+	 * @param command is the command without the ';' separating it from others
+	 * @return the reply line, starting with OK or ERR
+	 */
+	public String answer(String command) {
+		String trimmed = command.trim();
+		int space = trimmed.indexOf(' ');
+		String name = (space < 0 ? trimmed : trimmed.substring(0, space)).toUpperCase();
+		String argument = space < 0 ? "" : trimmed.substring(space + 1).trim();
+		switch (name) {
+		case "COURSES":
+			return "OK " + courses;
+		case "ORDER":
+			return order == null ? "ERR Can't complete all courses!" : "OK " + order;
+		case "FEASIBLE":
+			return "OK " + feasible;
+		case "MINIMAL":
+			if (argument.isEmpty()) {
+				return "ERR MINIMAL needs a course";
+			}
+			if (argument.startsWith("\"")) {
+				Object parsed = JSONValue.parse(argument);
+				if (!(parsed instanceof String)) {
+					return "ERR Bad course name: " + JSONValue.escape(argument);
+				}
+				argument = (String) parsed;
+			}
+			return "OK " + counts.getClosureSize(argument);
+		default:
+			return "ERR Unknown command: " + JSONValue.escape(trimmed);
+		}
+	}
+
+	/**
+	 * Accepts connections until the server is closed, handing each to its own thread. When accepting keeps
+	 * failing, for example because the process is out of file handles, it waits longer after each failure
+	 * instead of trying again straight away
+	 */
+	private void accept() {
+		long backoff = 0; // milliseconds to wait after the next failure
+		while (!socket.isClosed()) {
+			Socket connection;
+			try {
+				connection = socket.accept();
+				backoff = 0;
+			} catch (IOException e) {
+				if (socket.isClosed()) {
+					return;
+				}
+				// one connection failed to open and the next may still work, so wait a little and try again
+				backoff = Math.min(MAX_BACKOFF, Math.max(1, backoff * 2));
+				try {
+					Thread.sleep(backoff);
+				} catch (InterruptedException interrupted) {
+					return;
+				}
+				continue;
+			}
+			openConnections.add(connection);
+			try {
+				connections.execute(() -> serve(connection));
+			} catch (RejectedExecutionException e) {
+				// the executor was shut down by close(), which may have missed this connection
+				openConnections.remove(connection);
+				closeQuietly(connection);
+				return;
+			}
+		}
+	}
+
+	/**
+	 * Answers the requests on one connection until the client sends QUIT or closes it
+	 */
+	private void serve(Socket connection) {
+		try (Socket open = connection;
+				BufferedReader in = new BufferedReader(new InputStreamReader(open.getInputStream(), StandardCharsets.UTF_8));
+				Writer out = new BufferedWriter(new OutputStreamWriter(open.getOutputStream(), StandardCharsets.UTF_8))) {
+			String line;
+			while ((line = in.readLine()) != null) {
+				List<String> commands = split(line);
+				for (int i = 0; i < commands.size(); i++) {
+					if (commands.get(i).trim().equalsIgnoreCase("QUIT")) {
+						if (i > 0) {
+							out.write('\n'); // end the batch so the client knows the replies before QUIT are all there
+						}
+						out.flush();
+						return;
+					}
+					out.write(answer(commands.get(i)));
+					out.write('\n');
+				}
+				out.write('\n');
+				out.flush(); // one write per request line
+			}
+		} catch (IOException e) {
+			// the client went away or the server was closed, nothing more to answer
+		} finally {
+			openConnections.remove(connection);
+		}
+	}
+
+	/**
+	 * Splits a request line into commands at every ';' that isn't inside a json string
+	 */
+	private static List<String> split(String line) {
+		List<String> commands = new ArrayList<String>();
+		boolean quoted = false;
+		int start = 0;
+		for (int i = 0; i < line.length(); i++) {
+			char c = line.charAt(i);
+			if (quoted && c == '\\') {
+				i++; // skip the escaped character
+			} else if (c == '"') {
+				quoted = !quoted;
+			} else if (c == ';' && !quoted) {
+				commands.add(line.substring(start, i));
+				start = i + 1;
+			}
+		}
+		commands.add(line.substring(start));
+		return commands;
+	}
+
+	/**
+	 * Closes a connection, ignoring errors as there is nothing more to send on it
+	 */
+	private static void closeQuietly(Socket connection) {
+		try {
+			connection.close();
+		} catch (IOException e) {
+			// already closed or broken
+		}
+	}
+
+	/**
+	 * Makes an executor that runs every task on a new virtual thread when the JVM has them, otherwise on a
+	 * pool of daemon platform threads that grows as needed
+	 */
+	private static ExecutorService newConnectionExecutor() {
+		try {
+			return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+		} catch (ReflectiveOperationException e) {
+			return Executors.newCachedThreadPool(task -> {
+				Thread thread = new Thread(task, "course-query-connection");
+				thread.setDaemon(true);
+				return thread;
+			});
+		}
+	}
+
+	public static void main(String[] args) throws Exception {
+		if (args.length < 1) {
+			System.out.println("Usage: java CourseQueryServer catalog.json [port]");
+			return;
+		}
+		CourseQueryServer server = load(args[0]);
+		server.start(args.length > 1 ? Integer.parseInt(args[1]) : 0);
+		System.out.println("Serving " + args[0] + " on localhost:" + server.getPort());
+		Thread.currentThread().join(); // serve until the process is stopped
+	}
+}
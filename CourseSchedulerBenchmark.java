@@ -0,0 +1,138 @@
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.function.Supplier;
+
+/**
+ * Filename:   CourseSchedulerBenchmark.java
+ * Project:    p4
+ * Authors:    Aron Denenberg
+ *
+ * Times the main CourseSchedulerUtil operations on generated catalogs of each shape and size, against
+ * each GraphADT implementation. Every operation is run a few times to warm up and then timed over
+ * several more runs, and the median time is printed as one tab separated line per operation so runs can
+ * be compared across versions.
+ *
+ * Usage: java CourseSchedulerBenchmark [CHAIN|WIDE|RANDOM|CYCLIC ...] [size ...]
+ * With no shapes every shape is run, with no sizes 1000, 10000, 100000 and 1000000 courses are run.
+ */
+public class CourseSchedulerBenchmark {
+
+	// number of untimed and timed runs of each operation
+	private static final int WARMUP_RUNS = 2;
+	private static final int TIMED_RUNS = 5;
+
+	// number of courses asked about in each run of getMinimalCourseCompletion
+	private static final int QUERIES = 20;
+
+	/**
+	 * An operation to time, given a scheduler that already has the catalog loaded
+	 */
+	private interface Operation {
+		void run(CourseSchedulerUtil<String> courses) throws Exception;
+	}
+
+	@SuppressWarnings("rawtypes")
+	public static void main(String[] args) throws Exception {
+		List<CatalogGenerator.Shape> shapes = new ArrayList<CatalogGenerator.Shape>();
+		List<Integer> sizes = new ArrayList<Integer>();
+		for (String arg : args) {
+			if (arg.matches("\\d+")) {
+				sizes.add(Integer.parseInt(arg));
+			} else {
+				shapes.add(CatalogGenerator.Shape.valueOf(arg.toUpperCase()));
+			}
+		}
+		if (shapes.isEmpty()) {
+			shapes.addAll(Arrays.asList(CatalogGenerator.Shape.values()));
+		}
+		if (sizes.isEmpty()) {
+			sizes.addAll(Arrays.asList(1000, 10000, 100000, 1000000));
+		}
+
+		System.out.println("shape\tcourses\tgraph\toperation\tmedian ms");
+		for (CatalogGenerator.Shape shape : shapes) {
+			for (int size : sizes) {
+				final Entity[] entities = CatalogGenerator.generate(shape, size, 42);
+				final File file = File.createTempFile("catalog", ".json");
+				file.deleteOnExit();
+				CatalogGenerator.write(entities, file.getPath());
+				final String[] queries = new String[QUERIES];
+				Random random = new Random(7);
+				for (int i = 0; i < QUERIES; i++) {
+					queries[i] = (String) entities[random.nextInt(size)].getName();
+				}
+
+				String label = shape + "\t" + size;
+				report(label + "\t-\tcreateEntity", time(null, null, courses -> CourseSchedulerUtil.createEntity(file.getPath())));
+
+				List<Supplier<GraphADT<String>>> graphs = new ArrayList<Supplier<GraphADT<String>>>();
+				graphs.add(GraphImpl::new);
+				graphs.add(CompactGraphImpl::new);
+				graphs.add(ConcurrentGraphImpl::new);
+				graphs.add(OrderedGraphImpl::new);
+				graphs.add(PersistentGraphImpl::new);
+				for (Supplier<GraphADT<String>> graph : graphs) {
+					String graphLabel = label + "\t" + graph.get().getClass().getName();
+					report(graphLabel + "\tconstructGraph", time(graph, null, courses -> courses.constructGraph(entities)));
+					report(graphLabel + "\tgetSubjectOrder", time(graph, entities, courses -> {
+						try {
+							courses.getSubjectOrder();
+						} catch (Exception e) {
+							// expected for cyclic catalogs, the time to find the cycle is still measured
+						}
+					}));
+					report(graphLabel + "\tcanCoursesBeCompleted", time(graph, entities, courses -> courses.canCoursesBeCompleted()));
+					report(graphLabel + "\tgetMinimalCourseCompletion x" + QUERIES, time(graph, entities, courses -> {
+						for (String course : queries) {
+							courses.getMinimalCourseCompletion(course);
+						}
+					}));
+				}
+			}
+		}
+		if (SchedulerMetrics.get().isEnabled()) {
+			System.out.print(SchedulerMetrics.get().report()); // run with -Dscheduler.metrics=true to see tail latencies
+		}
+	}
+
+	/**
+	 * Runs an operation WARMUP_RUNS times untimed and then TIMED_RUNS times timed, each time on a new scheduler
+	 *
+	 * @param graph creates the graph for each new scheduler, null if the operation doesn't use the scheduler
+	 * @param entities are loaded into each new scheduler before the operation is timed, null to leave it empty
+	 * @param operation to time
+	 * @return median time of the timed runs in milliseconds
+	 */
+	@SuppressWarnings("rawtypes")
+	private static double time(Supplier<GraphADT<String>> graph, Entity[] entities, Operation operation)
+			throws Exception {
+		double[] times = new double[TIMED_RUNS];
+		for (int run = 0; run < WARMUP_RUNS + TIMED_RUNS; run++) {
+			CourseSchedulerUtil<String> courses = null;
+			if (graph != null) {
+				courses = new CourseSchedulerUtil<String>(graph.get());
+				if (entities != null) {
+					courses.constructGraph(entities);
+				}
+			}
+			long start = System.nanoTime();
+			operation.run(courses);
+			long elapsed = System.nanoTime() - start;
+			if (run >= WARMUP_RUNS) {
+				times[run - WARMUP_RUNS] = elapsed / 1e6;
+			}
+		}
+		Arrays.sort(times);
+		return times[TIMED_RUNS / 2];
+	}
+
+	/**
+	 * Prints one result line
+	 */
+	private static void report(String label, double millis) {
+		System.out.println(label + "\t" + String.format("%.3f", millis));
+	}
+}
@@ -0,0 +1,997 @@
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Reader;
+import java.io.StringReader;
+import java.io.Writer;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.net.URL;
+import java.net.SocketTimeoutException;
+import java.io.RandomAccessFile;
+import java.nio.IntBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+
+/**
+ * Filename:   CourseSchedulerChecks.java
+ * Project:    p4
+ * Authors:    Aron Denenberg
+ *
+ * Checks the behaviour of CourseSchedulerUtil and the graph classes without any test framework. Each
+ * check prints PASS or FAIL with its name, and the program exits with status 1 if any check failed, so
+ * it can be run by hand or from a script. valid.json is found on the class path, next to the compiled
+ * classes or in a directory given with -cp, so the checks can be run from any directory.
+ *
+ * Bugs or other notes: generated catalogs use fixed seeds so every run checks the same graphs
+ */
+public class CourseSchedulerChecks {
+
+	// number of checks that failed so far
+	private static int failures = 0;
+
+	public static void main(String[] args) throws Exception {
+		checkGraphsAgainstGraphImpl();
+		checkMappedGraph();
+		checkDependents();
+		checkForkIsolation();
+		checkClosureCache();
+		checkConcurrentReads();
+		checkServerClose();
+		checkServerProtocol();
+		checkUnlockedCourses();
+		checkMinimalCourseSet();
+		checkReachabilityIndex();
+		checkEvaluateAll();
+		checkDelta();
+		checkSortedCourses();
+		checkDictionary();
+		checkCatalogReader();
+		checkCatalogMerger();
+
+		System.out.println(failures == 0 ? "All checks passed" : failures + " check(s) failed");
+		if (failures > 0) {
+			System.exit(1);
+		}
+	}
+
+	/**
+	 * Records the result of one check
+	 *
+	 * @param name of the check
+	 * @param passed whether the check passed
+	 */
+	private static void check(String name, boolean passed) {
+		System.out.println((passed ? "PASS " : "FAIL ") + name);
+		if (!passed) {
+			failures++;
+		}
+	}
+
+	/**
+	 * Gets the path of a file next to the checks on the class path, or the name as given if it isn't there
+	 */
+	private static String resource(String name) throws Exception {
+		URL url = CourseSchedulerChecks.class.getResource("/" + name);
+		return url == null ? name : new File(url.toURI()).getPath();
+	}
+
+	/**
+	 * Reads the small catalog in valid.json
+	 */
+	@SuppressWarnings("rawtypes")
+	private static Entity[] valid() throws Exception {
+		return CourseSchedulerUtil.createEntity(resource("valid.json"));
+	}
+
+	/**
+	 * Generates a catalog where every course picks a few prerequisites from the courses before it
+	 */
+	@SuppressWarnings("rawtypes")
+	private static Entity[] random(int courses, long seed) {
+		return CatalogGenerator.generate(CatalogGenerator.Shape.RANDOM, courses, seed);
+	}
+
+	/**
+	 * Builds a scheduler over a GraphImpl from the given entities, to check other graphs against
+	 */
+	@SuppressWarnings("rawtypes")
+	private static CourseSchedulerUtil<String> scheduler(Entity[] entities) {
+		return scheduler(new GraphImpl<String>(), entities);
+	}
+
+	/**
+	 * Builds a scheduler over the given graph from the given entities
+	 */
+	@SuppressWarnings("rawtypes")
+	private static CourseSchedulerUtil<String> scheduler(GraphADT<String> graph, Entity[] entities) {
+		CourseSchedulerUtil<String> scheduler = new CourseSchedulerUtil<String>(graph);
+		scheduler.constructGraph(entities);
+		return scheduler;
+	}
+
+	/**
+	 * Every graph implementation should hold the same vertices and edges as GraphImpl after the same random
+	 * changes, with reads mixed in between the changes. For an IndexedGraph the int arrays are checked too
+	 */
+	private static void checkGraphsAgainstGraphImpl() {
+		List<GraphADT<String>> graphs = new ArrayList<GraphADT<String>>();
+		graphs.add(new CompactGraphImpl<String>());
+		graphs.add(new ConcurrentGraphImpl<String>());
+		graphs.add(new OrderedGraphImpl<String>());
+		graphs.add(new PersistentGraphImpl<String>());
+		for (GraphADT<String> graph : graphs) {
+			GraphImpl<String> expected = new GraphImpl<String>();
+			Random random = new Random(17);
+			boolean same = true;
+			List<String> held = null; // adjacency list read before later changes, must stay readable
+			for (int change = 0; change < 20000; change++) {
+				String vertex1 = "C" + random.nextInt(300);
+				String vertex2 = "C" + random.nextInt(300);
+				int kind = random.nextInt(20);
+				if (kind < 4) {
+					expected.addVertex(vertex1);
+					graph.addVertex(vertex1);
+				} else if (kind < 5) {
+					expected.removeVertex(vertex1);
+					graph.removeVertex(vertex1);
+				} else if (kind < 15) {
+					expected.addEdge(vertex1, vertex2);
+					graph.addEdge(vertex1, vertex2);
+				} else {
+					expected.removeEdge(vertex1, vertex2);
+					graph.removeEdge(vertex1, vertex2);
+				}
+				if (change % 97 == 0) {
+					held = graph.getAdjacentVerticesOf(vertex1);
+				}
+				if (held != null) {
+					for (String adjacent : held) {
+						same &= adjacent != null;
+					}
+				}
+				if (change % 1000 == 0 || change == 19999) {
+					same &= sameGraph(expected, graph);
+				}
+			}
+			check(graph.getClass().getSimpleName() + " matches GraphImpl", same);
+		}
+	}
+
+	/**
+	 * Whether a graph has the same vertices and edges as a GraphImpl
+	 */
+	private static boolean sameGraph(GraphImpl<String> expected, GraphADT<String> graph) {
+		if (!expected.getAllVertices().equals(graph.getAllVertices()) || expected.size() != graph.size()
+				|| expected.order() != graph.order()) {
+			return false;
+		}
+		for (String vertex : expected.getAllVertices()) {
+			if (!new HashSet<String>(expected.getAdjacentVerticesOf(vertex))
+					.equals(new HashSet<String>(graph.getAdjacentVerticesOf(vertex)))) {
+				return false;
+			}
+		}
+		if (graph instanceof IndexedGraph) {
+			IndexedGraph<String> indexed = (IndexedGraph<String>) graph;
+			int[] offsets = indexed.offsets();
+			int[] targets = indexed.targets();
+			if (offsets.length != graph.order() + 1 || targets.length != graph.size()
+					|| !indexed.offsetBuffer().equals(IntBuffer.wrap(offsets))
+					|| !indexed.targetBuffer().equals(IntBuffer.wrap(targets))) {
+				return false;
+			}
+			for (String vertex : expected.getAllVertices()) {
+				int id = indexed.idOf(vertex);
+				Set<String> adjacent = new HashSet<String>();
+				for (int i = offsets[id]; i < offsets[id + 1]; i++) {
+					adjacent.add(indexed.vertexOf(targets[i]));
+				}
+				if (!vertex.equals(indexed.vertexOf(id))
+						|| !adjacent.equals(new HashSet<String>(expected.getAdjacentVerticesOf(vertex)))) {
+					return false;
+				}
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * A compiled catalog should read back as the graph it was written from and give the same counts, and
+	 * a damaged file should fail its checksum unless the check is skipped
+	 */
+	@SuppressWarnings("rawtypes")
+	private static void checkMappedGraph() throws Exception {
+		Entity[][] catalogs = new Entity[][] { random(3000, 13),
+				CatalogGenerator.generate(CatalogGenerator.Shape.CYCLIC, 300, 13) };
+		for (Entity[] entities : catalogs) {
+			GraphImpl<String> graph = new GraphImpl<String>();
+			CourseSchedulerUtil<String> expected = scheduler(graph, entities);
+			File file = File.createTempFile("catalog", ".bin");
+			file.deleteOnExit();
+			MappedCatalogGraph.write(graph, file.getPath());
+			MappedCatalogGraph mapped = MappedCatalogGraph.open(file.getPath());
+			CourseSchedulerUtil<String> served = new CourseSchedulerUtil<String>(mapped);
+			check("mapped graph of " + entities.length + " courses matches GraphImpl", sameGraph(graph, mapped)
+					&& sameCounts(expected, served, entities)
+					&& expected.canCoursesBeCompleted() == served.canCoursesBeCompleted());
+		}
+
+		File file = File.createTempFile("catalog", ".bin");
+		file.deleteOnExit();
+		MappedCatalogGraph.write(new GraphImpl<String>(), file.getPath());
+		try (RandomAccessFile corrupt = new RandomAccessFile(file, "rw")) {
+			corrupt.seek(corrupt.length() - 1);
+			corrupt.write('X');
+		}
+		boolean failed = false;
+		try {
+			MappedCatalogGraph.open(file.getPath());
+		} catch (IOException e) {
+			failed = true;
+		}
+		MappedCatalogGraph.open(file.getPath(), false); // trusted, so the damage isn't seen
+		check("mapped graph checksum is checked unless skipped", failed);
+	}
+
+	/**
+	 * Every DependentsGraph should report the same incoming edges as a scan of every adjacency list, also
+	 * after vertices and edges are removed
+	 */
+	@SuppressWarnings("rawtypes")
+	private static void checkDependents() {
+		Entity[] entities = random(2000, 24);
+		List<DependentsGraph<String>> graphs = new ArrayList<DependentsGraph<String>>();
+		graphs.add(new GraphImpl<String>());
+		graphs.add(new PersistentGraphImpl<String>());
+		graphs.add(new ConcurrentGraphImpl<String>());
+		for (DependentsGraph<String> graph : graphs) {
+			scheduler(graph, entities);
+			String removed = (String) entities[7].getName();
+			graph.removeVertex(removed);
+			for (int i = 0; i < entities.length; i += 5) {
+				String course = (String) entities[i].getName();
+				List<String> adjacent = graph.getAdjacentVerticesOf(course);
+				if (adjacent != null && !adjacent.isEmpty()) {
+					graph.removeEdge(course, adjacent.get(0));
+				}
+			}
+			boolean agrees = !graph.hasVertex(removed) && graph.getDependentsOf(removed) == null;
+			for (String vertex : graph.getAllVertices()) {
+				Set<String> scanned = new HashSet<String>();
+				for (String other : graph.getAllVertices()) {
+					if (graph.getAdjacentVerticesOf(other).contains(vertex)) {
+						scanned.add(other);
+					}
+				}
+				List<String> dependents = graph.getDependentsOf(vertex);
+				agrees &= graph.hasVertex(vertex) && dependents.size() == scanned.size()
+						&& scanned.containsAll(dependents);
+			}
+			check("dependents of " + graph.getClass().getSimpleName() + " match its edges", agrees);
+		}
+	}
+
+	/**
+	 * Changes to a fork should never be seen by the scheduler it came from, or the other way round
+	 */
+	@SuppressWarnings("rawtypes")
+	private static void checkForkIsolation() throws Exception {
+		Entity[] entities = valid();
+		CourseSchedulerUtil<String> original = scheduler(new PersistentGraphImpl<String>(), entities);
+		check("original counts CS200", original.getMinimalCourseCompletion("CS200") == 2);
+
+		CourseSchedulerUtil<String> fork = original.fork();
+		fork.getGraph().removeEdge("CS300", "CS400");
+		fork.getGraph().addEdge("CS400", "CS200");
+		check("fork sees its own changes", fork.getMinimalCourseCompletion("CS200") == 1
+				&& fork.getMinimalCourseCompletion("CS400") == 2 && fork.getGraph().size() == 4);
+		check("original doesn't see fork changes", original.getMinimalCourseCompletion("CS200") == 2
+				&& original.getMinimalCourseCompletion("CS400") == 0 && original.getGraph().size() == 4
+				&& original.getGraph().getAdjacentVerticesOf("CS300").contains("CS400"));
+
+		original.getGraph().removeVertex("CS790");
+		fork.getGraph().addEdge("CS200", "CS400");
+		check("fork doesn't see original changes", fork.getGraph().getAllVertices().contains("CS790")
+				&& !fork.canCoursesBeCompleted() && original.canCoursesBeCompleted()
+				&& !original.getGraph().getAllVertices().contains("CS790"));
+
+		boolean refused = false;
+		try {
+			new CourseSchedulerUtil<String>(new GraphImpl<String>()).fork();
+		} catch (UnsupportedOperationException e) {
+			refused = true;
+		}
+		check("only a PersistentGraphImpl forks", refused);
+	}
+
+	/**
+	 * Counts remembered by a ClosureCachingGraph should match counts worked out from scratch, also after
+	 * edges and vertices change
+	 */
+	@SuppressWarnings("rawtypes")
+	private static void checkClosureCache() throws Exception {
+		Entity[] entities = random(3000, 4);
+		List<GraphADT<String>> graphs = new ArrayList<GraphADT<String>>();
+		graphs.add(new GraphImpl<String>());
+		graphs.add(new CompactGraphImpl<String>());
+		graphs.add(new PersistentGraphImpl<String>());
+		for (GraphADT<String> graph : graphs) {
+			CourseSchedulerUtil<String> cached = scheduler(new ClosureCachingGraph<String>(graph), entities);
+			CourseSchedulerUtil<String> plain = scheduler(entities);
+			boolean matches = sameCounts(plain, cached, entities);
+			Random random = new Random(9);
+			for (int change = 0; change < 200; change++) {
+				String from = (String) entities[random.nextInt(entities.length)].getName();
+				String to = (String) entities[random.nextInt(entities.length)].getName();
+				for (CourseSchedulerUtil<String> courses : Arrays.asList(plain, cached)) {
+					if (change % 50 == 49) {
+						courses.getGraph().removeVertex(from);
+					} else if (change % 2 == 0) {
+						courses.getGraph().addEdge(from, to);
+					} else {
+						List<String> adjacent = courses.getGraph().getAdjacentVerticesOf(from);
+						if (adjacent != null && !adjacent.isEmpty()) {
+							courses.getGraph().removeEdge(from, adjacent.get(0));
+						}
+					}
+				}
+				if (change % 10 == 0) {
+					matches &= sameCounts(plain, cached, entities);
+				}
+			}
+			matches &= sameCounts(plain, cached, entities);
+			if (graph instanceof CompactGraphImpl) {
+				((CompactGraphImpl<String>) graph).freeze(); // counted by id once frozen
+				matches &= sameCounts(plain, new CourseSchedulerUtil<String>(graph), entities);
+			}
+			check("cached counts over " + graph.getClass().getSimpleName() + " match after changes", matches);
+		}
+
+		CourseSchedulerUtil<String> cached = scheduler(new ClosureCachingGraph<String>(new GraphImpl<String>()),
+				entities);
+		int unknown = cached.getMinimalCourseCompletion("NEW100");
+		cached.getGraph().addVertex("NEW100");
+		check("cached count of an unknown course is forgotten once it is added", unknown == -1
+				&& cached.getMinimalCourseCompletion("NEW100") == 0 && cached.getMinimalCourseCompletion(null) == -1);
+	}
+
+	/**
+	 * Whether two schedulers give the same count for every course
+	 */
+	@SuppressWarnings("rawtypes")
+	private static boolean sameCounts(CourseSchedulerUtil<String> expected, CourseSchedulerUtil<String> actual,
+			Entity[] entities) throws Exception {
+		for (Entity entity : entities) {
+			String course = (String) entity.getName();
+			if (expected.getMinimalCourseCompletion(course) != actual.getMinimalCourseCompletion(course)) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Many threads asking about courses in a ConcurrentGraphImpl, with and without a ClosureCachingGraph
+	 * around it, should get the same answers as a single thread while another thread keeps changing
+	 * courses they don't depend on
+	 */
+	@SuppressWarnings("rawtypes")
+	private static void checkConcurrentReads() throws Exception {
+		final Entity[] entities = random(5000, 11);
+		final CourseSchedulerUtil<String> plain = scheduler(entities);
+		List<GraphADT<String>> graphs = new ArrayList<GraphADT<String>>();
+		graphs.add(new ConcurrentGraphImpl<String>());
+		graphs.add(new ClosureCachingGraph<String>(new ConcurrentGraphImpl<String>()));
+		for (GraphADT<String> graph : graphs) {
+			final CourseSchedulerUtil<String> shared = scheduler(graph, entities);
+			final int chain = 10; // courses X0 to X9 the writer links and unlinks, X(i) only ever requiring X(i + 1)
+			for (int i = 0; i < chain; i++) {
+				shared.getGraph().addVertex("X" + i);
+			}
+			final AtomicBoolean done = new AtomicBoolean(false);
+			Thread writer = new Thread(() -> {
+				Random random = new Random(3);
+				while (!done.get()) {
+					int i = random.nextInt(chain - 1);
+					if (random.nextBoolean()) {
+						shared.getGraph().addEdge("X" + i, "X" + (i + 1));
+					} else {
+						shared.getGraph().removeEdge("X" + i, "X" + (i + 1));
+					}
+				}
+			});
+			writer.start();
+
+			ExecutorService readers = Executors.newFixedThreadPool(8);
+			List<Future<Boolean>> results = new ArrayList<Future<Boolean>>();
+			for (int thread = 0; thread < 8; thread++) {
+				final int seed = thread;
+				results.add(readers.submit(() -> {
+					Random random = new Random(seed);
+					boolean same = true;
+					for (int query = 0; query < 1000; query++) {
+						String course = (String) entities[random.nextInt(entities.length)].getName();
+						same &= plain.getMinimalCourseCompletion(course) == shared.getMinimalCourseCompletion(course);
+						int linked = shared.getMinimalCourseCompletion("X0");
+						same &= linked >= 0 && linked < chain;
+						if (query % 200 == 0) {
+							same &= shared.getSubjectOrder().size() == entities.length + chain
+									&& plain.getMinimalCourseSet(Arrays.asList(course))
+									.equals(shared.getMinimalCourseSet(Arrays.asList(course)));
+						}
+					}
+					return same;
+				}));
+			}
+			boolean same = true;
+			try {
+				for (Future<Boolean> result : results) {
+					same &= result.get();
+				}
+			} catch (ExecutionException e) {
+				same = false;
+			}
+			readers.shutdown();
+			done.set(true);
+			writer.join();
+
+			// once the writer stops every count must be up to date, remembered or not
+			Map<String, Integer> expected = new TopologicalSorter<String>(shared.getGraph()).countAllReachable();
+			for (int i = 0; i < chain; i++) {
+				same &= expected.get("X" + i) == shared.getMinimalCourseCompletion("X" + i);
+			}
+			check("concurrent reads of " + (graph instanceof ClosureCachingGraph ? "cached " : "")
+					+ "ConcurrentGraphImpl agree", same);
+		}
+	}
+
+	/**
+	 * Closing the query server should close connections that are waiting for their next request
+	 */
+	private static void checkServerClose() throws Exception {
+		CourseQueryServer server = CourseQueryServer.load(resource("valid.json"));
+		server.start(0);
+		try (Socket client = new Socket(InetAddress.getLoopbackAddress(), server.getPort())) {
+			client.setSoTimeout(5000);
+			Writer out = new OutputStreamWriter(client.getOutputStream(), StandardCharsets.UTF_8);
+			BufferedReader in = new BufferedReader(new InputStreamReader(client.getInputStream(), StandardCharsets.UTF_8));
+			out.write("MINIMAL CS200\n");
+			out.flush();
+			check("server answers", "OK 2".equals(in.readLine()) && "".equals(in.readLine()));
+			server.close();
+			boolean closed;
+			try {
+				closed = in.readLine() == null;
+			} catch (SocketTimeoutException e) {
+				closed = false; // still open after close()
+			} catch (IOException e) {
+				closed = true; // reset by the server
+			}
+			check("server close() closes idle connections", closed);
+		}
+	}
+
+	/**
+	 * The server should count courses as they are asked about, let a course name with ';' be quoted, and
+	 * still end a batch with an empty line when it stops at QUIT
+	 */
+	@SuppressWarnings("rawtypes")
+	private static void checkServerProtocol() throws Exception {
+		CourseSchedulerUtil<String> courses = new CourseSchedulerUtil<String>();
+		courses.constructGraph(new Entity[] { entity("A;B", new String[] { "C" }), entity("C", new String[0]) });
+		CourseQueryServer server = new CourseQueryServer(courses);
+		server.start(0);
+		try (Socket client = new Socket(InetAddress.getLoopbackAddress(), server.getPort())) {
+			client.setSoTimeout(5000);
+			Writer out = new OutputStreamWriter(client.getOutputStream(), StandardCharsets.UTF_8);
+			BufferedReader in = new BufferedReader(new InputStreamReader(client.getInputStream(), StandardCharsets.UTF_8));
+			out.write("MINIMAL \"A;B\"; MINIMAL C; MINIMAL D\n");
+			out.flush();
+			check("server answers a quoted course name", "OK 1".equals(in.readLine()) && "OK 0".equals(in.readLine())
+					&& "OK -1".equals(in.readLine()) && "".equals(in.readLine()));
+			out.write("FEASIBLE; QUIT; FEASIBLE\n");
+			out.flush();
+			check("server ends a batch cut short by QUIT", "OK true".equals(in.readLine())
+					&& "".equals(in.readLine()) && in.readLine() == null);
+		} finally {
+			server.close();
+		}
+	}
+
+	/**
+	 * The courses a course unlocks should be the courses that require it, on graphs with and without
+	 * incoming edges of their own
+	 */
+	@SuppressWarnings("rawtypes")
+	private static void checkUnlockedCourses() throws Exception {
+		CourseSchedulerUtil<String> small = scheduler(valid());
+		check("CS400 unlocks CS300 and CS760 directly", small.getUnlockedCourses("CS400", 1)
+				.equals(new HashSet<String>(Arrays.asList("CS300", "CS760"))));
+		check("CS400 unlocks CS200 through CS300", small.getUnlockedCourses("CS400", Integer.MAX_VALUE)
+				.equals(new HashSet<String>(Arrays.asList("CS300", "CS760", "CS200"))));
+
+		Entity[] entities = random(500, 5);
+		CourseSchedulerUtil<String> plain = scheduler(entities);
+		List<GraphADT<String>> graphs = new ArrayList<GraphADT<String>>();
+		graphs.add(new GraphImpl<String>());
+		graphs.add(new CompactGraphImpl<String>());
+		graphs.add(new ConcurrentGraphImpl<String>());
+		for (GraphADT<String> graph : graphs) {
+			CourseSchedulerUtil<String> courses = scheduler(graph, entities);
+			boolean matches = true;
+			for (int i = 0; i < entities.length; i += 25) {
+				String course = (String) entities[i].getName();
+				Set<String> requiring = new HashSet<String>();
+				for (Entity entity : entities) {
+					String other = (String) entity.getName();
+					if (!other.equals(course) && plain.getMinimalCourseSet(Arrays.asList(other)).contains(course)) {
+						requiring.add(other);
+					}
+				}
+				matches &= courses.getUnlockedCourses(course, Integer.MAX_VALUE).equals(requiring);
+			}
+			check("unlocked courses over " + graph.getClass().getSimpleName() + " match", matches);
+		}
+	}
+
+	/**
+	 * The minimal course set should hold every course the targets require and nothing else, list each course
+	 * after its prerequisites, and fail when the targets require a cycle
+	 */
+	@SuppressWarnings("rawtypes")
+	private static void checkMinimalCourseSet() throws Exception {
+		Entity[] entities = random(2000, 17);
+		GraphImpl<String> graph = new GraphImpl<String>();
+		CourseSchedulerUtil<String> courses = scheduler(graph, entities);
+		List<String> targets = new ArrayList<String>();
+		Set<String> expected = new HashSet<String>();
+		for (int i = 100; i < entities.length; i += 300) {
+			String target = (String) entities[i].getName();
+			targets.add(target);
+			expected.add(target);
+			expected.addAll(reachable(graph, target));
+		}
+		LinkedHashSet<String> set = courses.getMinimalCourseSet(targets);
+		check("minimal course set has exactly the required courses", set.equals(expected));
+		Set<String> taken = new HashSet<String>();
+		boolean ordered = true;
+		for (String course : set) {
+			ordered &= taken.containsAll(graph.getAdjacentVerticesOf(course));
+			taken.add(course);
+		}
+		check("minimal course set lists prerequisites first", ordered);
+
+		Entity[] cyclic = CatalogGenerator.generate(CatalogGenerator.Shape.CYCLIC, 200, 17);
+		boolean failed = false;
+		try {
+			scheduler(cyclic).getMinimalCourseSet(
+					Arrays.asList((String) cyclic[cyclic.length - 1].getName()));
+		} catch (Exception e) {
+			failed = !(e instanceof IllegalArgumentException);
+		}
+		check("minimal course set fails on a cycle", failed);
+	}
+
+	/**
+	 * The reachability index should give the same answers as walking the graph, with no sets, with sets for
+	 * only some components and with sets for all of them, on graphs with and without cycles
+	 */
+	private static void checkReachabilityIndex() throws Exception {
+		Random random = new Random(14);
+		boolean[] matches = new boolean[] { true, true, true };
+		long[] budgets = new long[] { 0, 400, 1 << 20 };
+		for (int round = 0; round < 150; round++) {
+			int n = 1 + random.nextInt(80);
+			GraphImpl<Integer> graph = new GraphImpl<Integer>();
+			for (int i = 0; i < n; i++) {
+				graph.addVertex(i);
+			}
+			boolean acyclic = round % 2 == 0;
+			for (int i = random.nextInt(3 * n); i > 0; i--) {
+				int from = random.nextInt(n);
+				int to = random.nextInt(n);
+				if (!acyclic || to < from) {
+					graph.addEdge(from, to);
+				}
+			}
+			for (int b = 0; b < budgets.length; b++) {
+				ReachabilityIndex<Integer> index = new ReachabilityIndex<Integer>(graph, budgets[b]);
+				for (int course = 0; course < n; course++) {
+					Set<Integer> required = reachable(graph, course);
+					for (int prerequisite = 0; prerequisite < n; prerequisite++) {
+						matches[b] &= index.isPrerequisite(prerequisite, course) == required.contains(prerequisite);
+					}
+				}
+			}
+		}
+		check("reachability index without sets matches a walk", matches[0]);
+		check("reachability index with some sets matches a walk", matches[1]);
+		check("reachability index with every set matches a walk", matches[2]);
+
+		// many threads asking at once, with a small budget so most answers need a walk
+		final GraphImpl<Integer> graph = new GraphImpl<Integer>();
+		final int n = 3000;
+		for (int i = 0; i < n; i++) {
+			graph.addVertex(i);
+			for (int k = 0; i > 0 && k < 2; k++) {
+				graph.addEdge(i, random.nextInt(i));
+			}
+		}
+		final ReachabilityIndex<Integer> index = new ReachabilityIndex<Integer>(graph, 2000);
+		ExecutorService pool = Executors.newFixedThreadPool(8);
+		List<Future<Boolean>> answers = new ArrayList<Future<Boolean>>();
+		for (int thread = 0; thread < 8; thread++) {
+			final int seed = thread;
+			answers.add(pool.submit(() -> {
+				Random picks = new Random(seed);
+				boolean same = true;
+				for (int q = 0; q < 60; q++) {
+					int course = picks.nextInt(n);
+					Set<Integer> required = reachable(graph, course);
+					for (int prerequisite = 0; prerequisite < n; prerequisite += 7) {
+						same &= index.isPrerequisite(prerequisite, course) == required.contains(prerequisite);
+					}
+				}
+				return same;
+			}));
+		}
+		boolean same = true;
+		for (Future<Boolean> answer : answers) {
+			same &= answer.get();
+		}
+		pool.shutdown();
+		check("reachability index answers many threads at once", same);
+	}
+
+	/**
+	 * Evaluating many transcripts at once, over several chunks and with transcripts shorter than the
+	 * bitset of every course, should give each student the minimal course set less what they have taken,
+	 * in input order
+	 */
+	@SuppressWarnings("rawtypes")
+	private static void checkEvaluateAll() throws Exception {
+		final Entity[] entities = random(3000, 25);
+		CourseSchedulerUtil<String> courses = scheduler(entities);
+		final TranscriptEvaluator<String> evaluator = courses.getTranscriptEvaluator();
+		List<String> targets = new ArrayList<String>();
+		for (int i = 40; i < 400; i += 90) {
+			targets.add((String) entities[i].getName());
+		}
+		final Set<String> required = courses.getMinimalCourseSet(targets);
+		final int students = 10000;
+		final List<long[]> taken = new ArrayList<long[]>(); // every transcript given out, kept to check against
+		Iterator<long[]> transcripts = new Iterator<long[]>() {
+			private Random random = new Random(25);
+
+			public boolean hasNext() {
+				return taken.size() < students;
+			}
+
+			public long[] next() {
+				List<String> completed = new ArrayList<String>();
+				for (int i = random.nextInt(40); i > 0; i--) {
+					completed.add((String) entities[random.nextInt(600)].getName());
+				}
+				long[] bits = evaluator.toBitset(completed);
+				bits = Arrays.copyOf(bits, random.nextInt(bits.length + 1)); // drop some courses off the end
+				taken.add(bits);
+				return bits;
+			}
+		};
+		final long[] expectedIndex = new long[1];
+		final boolean[] matches = new boolean[] { true };
+		long evaluated = evaluator.evaluateAll(targets, transcripts, new TranscriptEvaluator.ResultHandler() {
+			public void accept(long index, int[] missing) {
+				Set<String> expected = new HashSet<String>(required);
+				expected.removeAll(evaluator.toCourses(taken.get((int) index)));
+				boolean increasing = true;
+				for (int i = 1; i < missing.length; i++) {
+					increasing &= missing[i - 1] < missing[i];
+				}
+				matches[0] &= index == expectedIndex[0]++ && increasing;
+				matches[0] &= new HashSet<String>(evaluator.toCourses(missing)).equals(expected);
+			}
+		});
+		check("evaluateAll covers every transcript in order", evaluated == students && matches[0]);
+
+		// students in two programs, each checked against their own
+		final long[][] programs = new long[][] { evaluator.getRequired(targets),
+				evaluator.getRequired(Arrays.asList((String) entities[2500].getName())) };
+		final List<TranscriptEvaluator.Audit> audits = new ArrayList<TranscriptEvaluator.Audit>();
+		Random random = new Random(26);
+		for (int i = 0; i < 5000; i++) {
+			long[] completed = new long[programs[0].length];
+			for (int j = 0; j < completed.length; j++) {
+				completed[j] = random.nextLong() & random.nextLong();
+			}
+			audits.add(new TranscriptEvaluator.Audit(programs[i % 2], completed));
+		}
+		matches[0] = true;
+		evaluated = evaluator.evaluateAll(audits.iterator(), new TranscriptEvaluator.ResultHandler() {
+			public void accept(long index, int[] missing) {
+				TranscriptEvaluator.Audit audit = audits.get((int) index);
+				List<String> expected = evaluator.toCourses(evaluator.missing(audit.getRequired(), audit.getCompleted()));
+				matches[0] &= evaluator.toCourses(missing).equals(expected);
+			}
+		});
+		check("evaluateAll checks each student against their own program", evaluated == audits.size() && matches[0]);
+	}
+
+	/**
+	 * Every vertex reachable from a vertex by one or more edges
+	 */
+	private static <T> Set<T> reachable(GraphADT<T> graph, T vertex) {
+		Set<T> found = new HashSet<T>();
+		Deque<T> stack = new ArrayDeque<T>();
+		stack.push(vertex);
+		while (!stack.isEmpty()) {
+			for (T adjacent : graph.getAdjacentVerticesOf(stack.pop())) {
+				if (found.add(adjacent)) {
+					stack.push(adjacent);
+				}
+			}
+		}
+		return found;
+	}
+
+	/**
+	 * Applying the delta between two catalogs should give the same courses and counts as loading the second
+	 * catalog from scratch, whether or not counts were remembered before the delta
+	 */
+	@SuppressWarnings({ "rawtypes", "unchecked" })
+	private static void checkDelta() throws Exception {
+		Entity[] before = random(5000, 3);
+		List<Entity> courses = new ArrayList<Entity>();
+		Random random = new Random(5);
+		for (int i = 0; i < before.length; i++) {
+			int kind = random.nextInt(50);
+			if (kind == 0) {
+				continue; // removed, courses that require it keep it as a course with no prerequisites
+			}
+			if (kind == 1) {
+				String prereq = (String) before[random.nextInt(i + 1)].getName();
+				courses.add(entity((String) before[i].getName(), prereq.equals(before[i].getName()) ? new String[0]
+						: new String[] { prereq }));
+			} else {
+				courses.add(before[i]);
+			}
+		}
+		for (int i = 0; i < 50; i++) {
+			courses.add(entity("NEW" + i, new String[] { (String) before[random.nextInt(before.length)].getName() }));
+		}
+		Set<Object> listed = new HashSet<Object>();
+		for (Entity course : courses) {
+			listed.add(course.getName());
+		}
+		for (Entity course : new ArrayList<Entity>(courses)) {
+			for (Object prereq : course.getPrerequisites()) {
+				if (listed.add(prereq)) {
+					courses.add(entity((String) prereq, new String[0]));
+				}
+			}
+		}
+		Entity[] after = courses.toArray(new Entity[courses.size()]);
+		CatalogDelta delta = CatalogDelta.between(before, after);
+		CourseSchedulerUtil<String> expected = scheduler(after);
+
+		List<GraphADT<String>> graphs = new ArrayList<GraphADT<String>>();
+		graphs.add(new GraphImpl<String>());
+		graphs.add(new CompactGraphImpl<String>());
+		graphs.add(new ClosureCachingGraph<String>(new GraphImpl<String>()));
+		graphs.add(new ClosureCachingGraph<String>(new CompactGraphImpl<String>()));
+		for (GraphADT<String> graph : graphs) {
+			CourseSchedulerUtil<String> updated = scheduler(graph, before);
+			for (int i = 0; i < before.length; i += 7) {
+				updated.getMinimalCourseCompletion((String) before[i].getName()); // remember some counts first
+			}
+			updated.applyDelta(delta);
+			boolean same = sameGraph((GraphImpl<String>) expected.getGraph(), updated.getGraph())
+					&& sameCounts(expected, updated, after);
+			String label = graph instanceof ClosureCachingGraph
+					? "cached " + ((ClosureCachingGraph<String>) graph).getDelegate().getClass().getSimpleName()
+					: graph.getClass().getSimpleName();
+			check("delta applied to " + label + " matches a fresh load", same);
+		}
+	}
+
+	/**
+	 * Makes a course with the given prerequisites
+	 */
+	private static Entity<String> entity(String name, String[] prerequisites) {
+		Entity<String> course = new Entity<String>();
+		course.setName(name);
+		course.setPrerequisites(prerequisites);
+		return course;
+	}
+
+	/**
+	 * getAllCourses should hand out an independent sorted copy, and the sorted view, prefix and range
+	 * queries should follow changes when the courses are kept sorted
+	 */
+	private static void checkSortedCourses() throws Exception {
+		CourseSchedulerUtil<String> plain = scheduler(valid());
+		Set<String> copy = plain.getAllCourses();
+		copy.remove("CS200");
+		check("getAllCourses is an independent copy", copy.size() == 5 && plain.getAllCourses().size() == 6
+				&& plain.getAllCourses().first().equals("CS200"));
+		Set<String> listed = new HashSet<String>();
+		for (String course : plain.getAllCourses()) {
+			plain.getGraph().addVertex(course + "L"); // changing the courses while iterating a copy is fine
+			listed.add(course);
+		}
+		check("getAllCourses can be iterated while courses change", listed.size() == 6 && plain.getGraph().order() == 12);
+
+		CourseSchedulerUtil<String> cached = scheduler(new ClosureCachingGraph<String>(new GraphImpl<String>()),
+				valid());
+		Set<String> view = cached.getAllCoursesView();
+		Set<String> prefix = cached.getCoursesWithPrefix("CS5");
+		Set<String> range = cached.getCourseRange("CS300", "CS540");
+		cached.getGraph().addVertex("CS577");
+		cached.getGraph().removeVertex("CS400");
+		check("sorted view follows changes", view.contains("CS577") && !view.contains("CS400")
+				&& prefix.equals(new HashSet<String>(Arrays.asList("CS540", "CS577")))
+				&& range.equals(new HashSet<String>(Arrays.asList("CS300", "CS540"))));
+		check("prefix search without a cache", plain.getCoursesWithPrefix("CS7").equals(
+				new HashSet<String>(Arrays.asList("CS760", "CS760L", "CS790", "CS790L"))));
+
+		boolean refused = false;
+		try {
+			plain.getAllCoursesView();
+		} catch (UnsupportedOperationException e) {
+			refused = true;
+		}
+		check("only a ClosureCachingGraph has a sorted view", refused);
+
+		CourseSchedulerUtil<Integer> numbered = new CourseSchedulerUtil<Integer>();
+		numbered.getGraph().addVertex(400);
+		refused = false;
+		try {
+			numbered.getCoursesWithPrefix("4");
+		} catch (UnsupportedOperationException e) {
+			refused = true;
+		}
+		check("prefix search refuses courses that aren't Strings", refused);
+	}
+
+	/**
+	 * Courses read through a dictionary should use its shared names, and the same courses read as ids
+	 * should give the same answers once the ids are turned back into names
+	 */
+	@SuppressWarnings("rawtypes")
+	private static void checkDictionary() throws Exception {
+		CourseDictionary dictionary = new CourseDictionary();
+		Entity[] named = CourseSchedulerUtil.createEntity(resource("valid.json"), dictionary);
+		boolean shared = named.length == 6;
+		for (Entity course : named) {
+			shared &= course.getName() == dictionary.nameOf(dictionary.idOf((String) course.getName()));
+			for (Object prereq : course.getPrerequisites()) {
+				shared &= prereq == dictionary.nameOf(dictionary.idOf((String) prereq));
+			}
+		}
+		check("createEntity uses the dictionary's names", shared);
+
+		CourseSchedulerUtil<String> byName = scheduler(named);
+		CourseSchedulerUtil<Integer> byId = new CourseSchedulerUtil<Integer>(new CompactGraphImpl<Integer>());
+		byId.constructGraph(CourseSchedulerUtil.createEncodedEntity(resource("valid.json"), dictionary));
+		boolean same = byName.getSubjectOrder().size() == byId.getSubjectOrder().size();
+		for (Entity course : named) {
+			String name = (String) course.getName();
+			same &= byName.getMinimalCourseCompletion(name) == byId.getMinimalCourseCompletion(dictionary.idOf(name));
+		}
+		check("courses read as ids match courses read by name", same);
+	}
+
+	/**
+	 * The streaming reader should close its input when the catalog ends, when reading fails and when the
+	 * graph built from it stops early, and refuse courses without a name
+	 */
+	private static void checkCatalogReader() throws Exception {
+		final boolean[] closed = new boolean[1];
+		String valid = "{\"courses\": [{\"name\": \"A\", \"prerequisites\": [\"B\"]}, {\"name\": \"B\"}]}";
+		CourseSchedulerUtil<String> courses = new CourseSchedulerUtil<String>();
+		courses.constructGraph(new CourseCatalogReader(tracked(valid, closed)));
+		check("catalog reader closes at the end", closed[0] && courses.getGraph().size() == 1);
+
+		closed[0] = false;
+		boolean failed = false;
+		try {
+			new CourseSchedulerUtil<String>().constructGraph(new CourseCatalogReader(tracked(
+					"{\"courses\": [{\"name\": \"A\"}, {\"name\": ]}", closed)));
+		} catch (IllegalStateException e) {
+			failed = true;
+		}
+		check("catalog reader closes when the json is bad", failed && closed[0]);
+
+		closed[0] = false;
+		failed = false;
+		try (CourseCatalogReader reader = new CourseCatalogReader(tracked(
+				"{\"courses\": [{\"name\": \"A\"}, {\"prerequisites\": [\"A\"]}]}", closed))) {
+			while (reader.hasNext()) {
+				reader.next();
+			}
+		} catch (IllegalStateException e) {
+			failed = e.getMessage().contains("without a name");
+		}
+		check("course without a name is an error", failed && closed[0]);
+
+		closed[0] = false;
+		try (CourseCatalogReader reader = new CourseCatalogReader(tracked(valid, closed))) {
+			reader.next(); // stop after the first course
+		}
+		check("catalog reader closes when stopped early", closed[0]);
+	}
+
+	/**
+	 * The merger should tell a course repeated in one file apart from one defined in two files, and pass
+	 * on the error from a file it can't parse
+	 */
+	@SuppressWarnings("rawtypes")
+	private static void checkCatalogMerger() throws Exception {
+		String first = catalogFile("{\"courses\": [{\"name\": \"A\", \"prerequisites\": [\"B\"]}, "
+				+ "{\"name\": \"B\"}, {\"name\": \"A\", \"prerequisites\": [\"B\"]}]}");
+		String second = catalogFile("{\"courses\": [{\"name\": \"B\"}, {\"name\": \"C\"}]}");
+		String bad = catalogFile("{\"courses\": [{\"name\": \"D\"}, {\"name\": ]}");
+
+		CatalogMerger merger = new CatalogMerger(2);
+		Entity[] merged = merger.merge(Arrays.asList(first, second));
+		check("merger keeps each course once", merged.length == 3);
+		check("merger reports a course repeated in one file",
+				merger.getDuplicates().contains("A is defined twice in " + first)
+				&& merger.getDuplicates().contains("B is defined in both " + first + " and " + second));
+
+		boolean failed = false;
+		try {
+			new CatalogMerger(2).merge(Arrays.asList(first, bad, second));
+		} catch (Exception e) {
+			failed = true;
+		}
+		check("merger passes on a parse error", failed);
+
+		merger.merge(Arrays.asList(second));
+		check("merger starts a new dictionary for each merge", merger.getDictionary().size() == 2
+				&& merger.getDictionary().idOf("A") < 0);
+	}
+
+	/**
+	 * Writes a catalog to a temporary file that is deleted when the checks finish
+	 */
+	private static String catalogFile(String json) throws IOException {
+		File file = File.createTempFile("catalog", ".json");
+		file.deleteOnExit();
+		Files.write(file.toPath(), json.getBytes(StandardCharsets.UTF_8));
+		return file.getPath();
+	}
+
+	/**
+	 * Makes a reader over some text that records when it is closed
+	 */
+	private static Reader tracked(String text, final boolean[] closed) {
+		return new StringReader(text) {
+			@Override
+			public void close() {
+				closed[0] = true;
+				super.close();
+			}
+		};
+	}
+}
@@ -0,0 +1,195 @@
+import java.nio.IntBuffer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+
+/**
+ * Filename:   CriticalPath.java
+ * Project:    p4
+ * Authors:    Aron Denenberg
+ *
+ * Finds the longest chain of prerequisites behind every course, which is the fewest semesters that have
+ * to pass before the course can be taken. All courses are done together in O(V+E) by peeling the graph
+ * in rounds: round 0 is every course with no prerequisites, and a course joins round k once its last
+ * prerequisite is released in round k - 1. A course's round is then exactly the length of its longest
+ * chain, and the prerequisite that released it is the one before it on that chain, so the chain itself
+ * can be followed back without any more searching.
+ *
+ * Courses in the same round don't depend on each other, so large rounds are released in parallel on the
+ * common fork join pool.
+ *
+ * Bugs or other notes: the result isn't updated when the graph changes
+ *
+ * @param <T> type of a vertex
+ */
+public class CriticalPath<T> {
+
+	// rounds with fewer courses than this are released on the calling thread
+	private static final int PARALLEL_ROUND = 1 << 13;
+
+	// field variables
+	private TopologicalSorter<T> sorter; // ids and int arrays of the graph
+	private int[] incomingOffsets; // start of each id's dependents in incoming
+	private int[] incoming; // ids with an edge to each id, one id after another
+	private int[] depth; // round of each id, -1 for ids that reach a cycle
+	private int[] via; // prerequisite that released each id, -1 for ids with no prerequisites or that reach a cycle
+	private int deepest; // id with the highest round, -1 if there is none
+
+	/**
+	 * Constructor for the class. Computes the chains of every course
+	 *
+	 * @param graph is the graph of courses and their prerequisites
+	 */
+	public CriticalPath(GraphADT<T> graph) {
+		sorter = new TopologicalSorter<T>(graph);
+		int vertexCount = sorter.vertexCount();
+		IntBuffer offsets = sorter.offsets();
+		incomingOffsets = sorter.incomingOffsets(); // built here, before any thread reads them
+		incoming = sorter.incoming();
+		depth = new int[vertexCount];
+		via = new int[vertexCount];
+		AtomicIntegerArray remaining = new AtomicIntegerArray(vertexCount); // prerequisites not yet released
+		int[] round = new int[vertexCount]; // ids of the current round followed by ids of the next one
+		int roundStart = 0;
+		int roundEnd = 0;
+		for (int id = 0; id < vertexCount; id++) {
+			depth[id] = -1;
+			via[id] = -1;
+			remaining.set(id, offsets.get(id + 1) - offsets.get(id));
+			if (offsets.get(id + 1) == offsets.get(id)) {
+				round[roundEnd++] = id;
+			}
+		}
+		deepest = -1;
+		AtomicInteger tail = new AtomicInteger(roundEnd); // where the next released id is added
+
+		// each round is released into the space after it, so round holds every peeled id once at the end
+		for (int level = 0; roundStart < roundEnd; level++) {
+			for (int i = roundStart; i < roundEnd; i++) {
+				depth[round[i]] = level;
+			}
+			deepest = round[roundStart];
+			Release release = new Release(round, remaining, tail, roundStart, roundEnd);
+			if (roundEnd - roundStart >= PARALLEL_ROUND) {
+				ForkJoinPool.commonPool().invoke(release);
+			} else {
+				release.compute();
+			}
+			roundStart = roundEnd;
+			roundEnd = tail.get();
+		}
+	}
+
+	/**
+	 * Gets the length of the longest chain of prerequisites behind a course
+	 *
+	 * @param course to get the chain of
+	 * @return fewest semesters before the course can be taken, 0 for a course with no prerequisites, -1 if
+	 *         the course isn't in the graph or a cycle is among its prerequisites
+	 */
+	public int getDepth(T course) {
+		int id = sorter.idOf(course);
+		return id < 0 ? -1 : depth[id];
+	}
+
+	/**
+	 * Gets the longest chain of prerequisites behind a course
+	 *
+	 * @param course to get the chain of
+	 * @return the courses of the chain, prerequisites first and ending with the course, null if the course
+	 *         isn't in the graph or a cycle is among its prerequisites
+	 */
+	public List<T> getChain(T course) {
+		int id = sorter.idOf(course);
+		return id < 0 || depth[id] < 0 ? null : chainOf(id);
+	}
+
+	/**
+	 * Gets the longest chain of prerequisites in the whole graph
+	 *
+	 * @return the courses of the chain, prerequisites first, empty if no course can be completed
+	 */
+	public List<T> getLongestChain() {
+		return deepest < 0 ? new ArrayList<T>() : chainOf(deepest);
+	}
+
+	/**
+	 * Gets the length of the longest chain of prerequisites behind every course
+	 *
+	 * @return map from each course to its depth, see getDepth
+	 */
+	public Map<T, Integer> getAllDepths() {
+		Map<T, Integer> result = new HashMap<T, Integer>();
+		for (int id = 0; id < depth.length; id++) {
+			result.put(sorter.vertexOf(id), depth[id]);
+		}
+		return result;
+	}
+
+	/**
+	 * Follows the prerequisites that released each course back from an id
+	 */
+	private List<T> chainOf(int id) {
+		List<T> chain = new ArrayList<T>(depth[id] + 1);
+		for (int current = id; current >= 0; current = via[current]) {
+			chain.add(sorter.vertexOf(current));
+		}
+		Collections.reverse(chain);
+		return chain;
+	}
+
+	/**
+	 * Releases a range of a round, adding every course whose last prerequisite is in the range to the next
+	 * round and recording which prerequisite released it. Large ranges are split in half and run in parallel
+	 */
+	private class Release extends RecursiveAction {
+
+		private static final long serialVersionUID = 1L;
+
+		// field variables
+		private int[] round; // ids of every round, the next round is added after the current one
+		private AtomicIntegerArray remaining; // prerequisites not yet released of each id
+		private AtomicInteger tail; // where the next released id is added to round
+		private int from; // first position in round to release
+		private int to; // position after the last one to release
+
+		/**
+		 * Constructor for the class
+		 */
+		Release(int[] round, AtomicIntegerArray remaining, AtomicInteger tail, int from, int to) {
+			this.round = round;
+			this.remaining = remaining;
+			this.tail = tail;
+			this.from = from;
+			this.to = to;
+		}
+
+		@Override
+		protected void compute() {
+			if (to - from >= PARALLEL_ROUND) {
+				int middle = (from + to) >>> 1;
+				invokeAll(new Release(round, remaining, tail, from, middle),
+						new Release(round, remaining, tail, middle, to));
+				return;
+			}
+			for (int i = from; i < to; i++) {
+				int id = round[i];
+				for (int j = incomingOffsets[id]; j < incomingOffsets[id + 1]; j++) {
+					int dependent = incoming[j];
+					// only one thread sees the count reach 0, and its id is from the latest round
+					if (remaining.decrementAndGet(dependent) == 0) {
+						via[dependent] = id;
+						round[tail.getAndIncrement()] = dependent;
+					}
+				}
+			}
+		}
+	}
+}
@@ -0,0 +1,34 @@
+import java.util.List;
+
+/**
+ * Filename:   DependentsGraph.java
+ * Project:    p4
+ * Authors:    Aron Denenberg
+ *
+ * A graph that keeps the incoming edges of each vertex as well as the outgoing ones, so the vertices
+ * with an edge to a vertex can be read without scanning every adjacency list. For a course graph these
+ * are the courses a course is a direct prerequisite of. Code that needs to walk edges backwards should
+ * check for this interface before building an index of its own.
+ *
+ * @param <T> type of a vertex
+ */
+public interface DependentsGraph<T> extends GraphADT<T> {
+
+    /**
+     * Retrieves all the vertices that have an edge to the given vertex
+     *
+     * @param vertex to check for incoming edges
+     * @return list of all vertices with an edge to the given vertex, null if the vertex isn't in the graph.
+     *         The list must not be modified
+     */
+    public List<T> getDependentsOf(T vertex);
+
+    /**
+     * Checks whether the graph has the given value as a vertex
+     *
+     * @param vertex to check if it exists in the graph
+     * @return true if vertex exists in the graph, false otherwise
+     */
+    public boolean hasVertex(T vertex);
+
+}
@@ -1,6 +1,6 @@
-import java.util.ArrayList;
+import java.util.AbstractList;
+import java.util.Arrays;
 import java.util.HashMap;
-import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
@@ -18,27 +18,148 @@ import java.util.Set;
  *
  * Additional credits: 
  *
- * Bugs or other notes: 
+ * Bugs or other notes: the class no longer only offers GraphADT. getDependentsOf and hasVertex are public
+ * because DependentsGraph requires them, so code that walks edges backwards can use the incoming edges
+ * kept here. Any other new method should be private, or go in an interface the class implements
  *
  * @param <T> type of a vertex
  */
-public class GraphImpl<T> implements GraphADT<T> {
+public class GraphImpl<T> implements DependentsGraph<T> {
 
     // YOU MAY ADD ADDITIONAL private members
-    // YOU MAY NOT ADD ADDITIONAL public members
+    // public members are only those of GraphADT and of the interfaces below it, such as DependentsGraph
 
     /**
      * Store the vertices and the vertice's adjacent vertices
      */
-    private Map<T, List<T>> verticesMap; 
+    private Map<T, AdjacencyList<T>> verticesMap; 
+    
+    /**
+     * Store the vertices and the vertices that have an edge to them, kept up to date alongside verticesMap
+     */
+    private Map<T, AdjacencyList<T>> dependentsMap;
+    
+    /**
+     * Number of edges in the graph, kept up to date as edges are added and removed
+     */
+    private int edgeCount;
+    
+    /**
+     * Private embedded class for a vertex's list of adjacent vertices. Small lists are a plain array that is
+     * scanned, once a list grows past INDEX_THRESHOLD it also keeps a hash index from each vertex to its 
+     * position so that checking for, adding and removing a vertex are all O(1). Vertices are compared with 
+     * equals. The list can only be changed by GraphImpl, to everything else it is read only
+     * 
+     * @param <T> type of a vertex
+     */
+    private static class AdjacencyList<T> extends AbstractList<T> {
+    	
+    	// size a list must grow past before it keeps a hash index
+    	private static final int INDEX_THRESHOLD = 8;
+    	
+    	// field variables
+    	private Object[] items = new Object[4]; // vertices in the list
+    	private int count; // number of vertices in the list
+    	private Map<T, Integer> index; // position of each vertex in items, null while the list is small
+    	
+    	/**
+    	 * Gets the vertex at the given position
+    	 */
+    	@SuppressWarnings("unchecked")
+		public T get(int position) {
+    		if (position < 0 || position >= count) {
+    			throw new IndexOutOfBoundsException("Index: " + position);
+    		}
+    		return (T) items[position];
+    	}
+    	
+    	/**
+    	 * Gets the number of vertices in the list
+    	 */
+    	public int size() {
+    		return count;
+    	}
+    	
+    	/**
+    	 * Checks whether the list has the given vertex
+    	 */
+    	public boolean contains(Object vertex) {
+    		return indexOf(vertex) >= 0;
+    	}
+    	
+    	/**
+    	 * Gets the position of the given vertex, -1 if it isn't in the list
+    	 */
+    	public int indexOf(Object vertex) {
+    		if (index != null) {
+    			Integer position = index.get(vertex);
+    			return position == null ? -1 : position;
+    		}
+    		for (int i = 0; i < count; i++) {
+    			if (items[i].equals(vertex)) {
+    				return i;
+    			}
+    		}
+    		return -1;
+    	}
+    	
+    	/**
+    	 * Adds a vertex to the end of the list, building the hash index once the list grows past the threshold.
+    	 * The vertex must not already be in the list
+    	 */
+    	@SuppressWarnings("unchecked")
+		void insert(T vertex) {
+    		if (count == items.length) {
+    			items = Arrays.copyOf(items, count * 2);
+    		}
+    		items[count++] = vertex;
+    		if (index != null) {
+    			index.put(vertex, count - 1);
+    		} else if (count > INDEX_THRESHOLD) {
+    			index = new HashMap<T, Integer>();
+    			for (int i = 0; i < count; i++) {
+    				index.put((T) items[i], i);
+    			}
+    		}
+    		modCount++;
+    	}
+    	
+    	/**
+    	 * Removes a vertex from the list. Small lists keep their order, indexed lists move the last vertex into
+    	 * the gap so nothing has to be shifted
+    	 * 
+    	 * @return true if the vertex was in the list, false otherwise
+    	 */
+    	@SuppressWarnings("unchecked")
+		boolean delete(Object vertex) {
+    		int position = indexOf(vertex);
+    		if (position < 0) {
+    			return false;
+    		}
+    		count--;
+    		if (index != null) {
+    			index.remove(vertex);
+    			if (position != count) {
+    				items[position] = items[count];
+    				index.put((T) items[position], position);
+    			}
+    		} else {
+    			System.arraycopy(items, position + 1, items, position, count - position);
+    		}
+    		items[count] = null;
+    		modCount++;
+    		return true;
+    	}
+    }
     
     
     /**
      * Construct and initialize and empty Graph
      */ 
     public GraphImpl() {
-        verticesMap = new HashMap<T, List<T>>();
-        // you may initialize additional data members here
+        verticesMap = new HashMap<T, AdjacencyList<T>>();
+        dependentsMap = new HashMap<T, AdjacencyList<T>>();
+        edgeCount = 0;
     }
     
     /**
@@ -52,18 +173,33 @@ public class GraphImpl<T> implements GraphADT<T> {
         if (vertex == null || verticesMap.containsKey(vertex)) {
         	return;
         }
-        verticesMap.put(vertex, new ArrayList<T>());
+        verticesMap.put(vertex, new AdjacencyList<T>());
+        dependentsMap.put(vertex, new AdjacencyList<T>());
     }
     
     /**
-     * Removes the given vertex from the graph. Returns without error if the input is null or is a 
-     * vertex that doesn't already exist in the graph
+     * Removes the given vertex and all edges to or from it from the graph. Returns without error if the input 
+     * is null or is a vertex that doesn't already exist in the graph. Uses the index of incoming edges so only 
+     * the vertices the given vertex is linked with are touched
      */
     public void removeVertex(T vertex) {
     	if (vertex == null || !verticesMap.containsKey(vertex)) {
         	return;
         }
+    	// drop the edges to the vertex from the lists of the vertices that have them, and the edges from the
+    	// vertex from the incoming edge lists of the vertices it has them to
+    	AdjacencyList<T> dependents = dependentsMap.get(vertex);
+    	AdjacencyList<T> adjacents = verticesMap.get(vertex);
+    	// an edge from the vertex to itself is in both lists but must only be counted once
+    	edgeCount -= dependents.size() + adjacents.size() - (adjacents.contains(vertex) ? 1 : 0);
+    	for (T dependent : dependents) {
+    		verticesMap.get(dependent).delete(vertex);
+    	}
+    	for (T adjacent : adjacents) {
+    		dependentsMap.get(adjacent).delete(vertex);
+    	}
         verticesMap.remove(vertex);
+        dependentsMap.remove(vertex);
     }
     
     /**
@@ -78,7 +214,9 @@ public class GraphImpl<T> implements GraphADT<T> {
         		|| edgeExists(vertex1, vertex2)) {
         	return;
         }
-        verticesMap.get(vertex1).add(vertex2);
+        verticesMap.get(vertex1).insert(vertex2);
+        dependentsMap.get(vertex2).insert(vertex1);
+        edgeCount++;
     }
     
     /**
@@ -93,7 +231,9 @@ public class GraphImpl<T> implements GraphADT<T> {
         		|| !edgeExists(vertex1, vertex2)) {
         	return;
         }
-    	verticesMap.get(vertex1).remove(vertex2);
+    	verticesMap.get(vertex1).delete(vertex2);
+    	dependentsMap.get(vertex2).delete(vertex1);
+    	edgeCount--;
     }    
     
     /**
@@ -120,28 +260,23 @@ public class GraphImpl<T> implements GraphADT<T> {
         // list of adjacent vertices to return, initialized with all vertices the 
         // given vertex has an edge to
         List<T> adjacentVertices = verticesMap.get(vertex);
-        /*Set<T> allVertices = getAllVertices(); // set of all vertices in the graph to iterate over to see if
-        // an edge exists to the given vertex
-        Iterator<T> itr = allVertices.iterator(); // iterator over T values in the set of all vertices
-        
-        // Loop to iterate over all vertices and check whether they have an edge to the given vertex
-        while (itr.hasNext()) {
-        	T newVertex = itr.next();
-        	
-        	// skip vertex if it is the given vertex
-        	if (newVertex.equals(vertex)) { continue; }
-        	
-        	// check if any of the vertex's edges point to the given vertex
-        	for (T adjacent : verticesMap.get(newVertex)) {
-        		if (adjacent.equals(vertex)) {
-        			adjacentVertices.add(newVertex);
-        			break;
-        		}
-        	}
-        }*/
         return adjacentVertices;
     }
     
+    /**
+     * Retrieves all the vertices that have an edge to the given vertex. For a course graph these are the 
+     * courses the given course is a direct prerequisite of
+     * 
+     * @param vertex to check for incoming edges
+     * @return list of all vertices with an edge to the given vertex, null if the vertex isn't in the graph
+     */
+    public List<T> getDependentsOf(T vertex) {
+        if (!hasVertex(vertex)) {
+        	return null;
+        }
+        return dependentsMap.get(vertex);
+    }
+    
     /**
      * Checks whether the graph has the given value as a vertex
      * 
@@ -167,13 +302,7 @@ public class GraphImpl<T> implements GraphADT<T> {
      * @return number of edges in the graph
      */
     public int size() {
-        Set<T> allVertices = getAllVertices(); // set of all vertices in the graph to iterate over
-        Iterator<T> itr = allVertices.iterator(); // iterator over T values in the set of all vertices
-        int size = 0; // will ultimately store the size of the graph to be returned, initialized to 0
-        while (itr.hasNext()) {
-        	size += verticesMap.get(itr.next()).size();
-        }
-        return size;
+        return edgeCount;
     }
     
     
@@ -203,15 +332,7 @@ public class GraphImpl<T> implements GraphADT<T> {
      * @return boolean value saying whether or not an edge exists between the two vertices
      */
     private boolean edgeExists(T vertex1, T vertex2) {
-    	List<T> edges = verticesMap.get(vertex1);
-    	for (T edge:edges) {
-    		if (edge == vertex2) {
-    			return true;
-    		}
-    	}
-    	return false;
-    	
-    	
+    	return verticesMap.get(vertex1).contains(vertex2);
     }
 }
 
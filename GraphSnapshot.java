@@ -0,0 +1,282 @@
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+
+
+/**
+ * Filename:   GraphSnapshot.java
+ * Project:    p4
+ * Authors:    Aron Denenberg
+ *
+ * Immutable graph. The GraphADT methods that change a graph are not supported, instead withVertex,
+ * withoutVertex, withEdge and withoutEdge return a new snapshot with the change made. Vertices and their
+ * adjacent and dependent vertices are kept in persistent hash maps, so a new snapshot copies only the
+ * few trie nodes and adjacency arrays it changes and shares the rest with the snapshot it came from.
+ * Snapshots never change once built, so any number of threads can read one without locking.
+ *
+ * Bugs or other notes: adjacency is a small array per vertex, so checking for, adding or removing an edge
+ * is O(degree) rather than O(1)
+ *
+ * @param <T> type of a vertex
+ */
+public final class GraphSnapshot<T> implements DependentsGraph<T> {
+
+    /**
+     * Shared snapshot with no vertices
+     */
+    @SuppressWarnings("rawtypes")
+    private static final GraphSnapshot EMPTY = new GraphSnapshot<Object>(PersistentHashMap.empty(),
+    		PersistentHashMap.empty(), 0);
+
+    /**
+     * Array of no vertices shared by every vertex without edges
+     */
+    private static final Object[] NONE = new Object[0];
+
+    /**
+     * Store the vertices and the vertices they have an edge to
+     */
+    private final PersistentHashMap<T, Object[]> verticesMap;
+
+    /**
+     * Store the vertices and the vertices that have an edge to them
+     */
+    private final PersistentHashMap<T, Object[]> dependentsMap;
+
+    /**
+     * Number of edges in the graph
+     */
+    private final int edgeCount;
+
+
+    /**
+     * Constructor for the class, use empty() to get a snapshot
+     */
+    private GraphSnapshot(PersistentHashMap<T, Object[]> verticesMap, PersistentHashMap<T, Object[]> dependentsMap,
+    		int edgeCount) {
+        this.verticesMap = verticesMap;
+        this.dependentsMap = dependentsMap;
+        this.edgeCount = edgeCount;
+    }
+
+    /**
+     * Gets the snapshot with no vertices
+     *
+     * @return an empty graph
+     */
+    @SuppressWarnings("unchecked")
+    public static <T> GraphSnapshot<T> empty() {
+    	return EMPTY;
+    }
+
+    /**
+     * Gets a snapshot with the given vertex added
+     *
+     * @param vertex to add
+     * @return new snapshot with the vertex, this snapshot if the vertex is null or already in the graph
+     */
+    public GraphSnapshot<T> withVertex(T vertex) {
+    	if (vertex == null || hasVertex(vertex)) {
+    		return this;
+    	}
+    	return new GraphSnapshot<T>(verticesMap.put(vertex, NONE), dependentsMap.put(vertex, NONE), edgeCount);
+    }
+
+    /**
+     * Gets a snapshot with the given vertex and all edges to or from it removed
+     *
+     * @param vertex to remove
+     * @return new snapshot without the vertex, this snapshot if the vertex is null or not in the graph
+     */
+    @SuppressWarnings("unchecked")
+    public GraphSnapshot<T> withoutVertex(T vertex) {
+    	if (vertex == null || !hasVertex(vertex)) {
+    		return this;
+    	}
+    	PersistentHashMap<T, Object[]> newVertices = verticesMap;
+    	PersistentHashMap<T, Object[]> newDependents = dependentsMap;
+    	Object[] adjacents = verticesMap.get(vertex);
+    	Object[] dependents = dependentsMap.get(vertex);
+    	for (Object dependent : dependents) {
+    		newVertices = newVertices.put((T) dependent, without(newVertices.get(dependent), vertex));
+    	}
+    	for (Object adjacent : adjacents) {
+    		newDependents = newDependents.put((T) adjacent, without(newDependents.get(adjacent), vertex));
+    	}
+    	// an edge from the vertex to itself is in both arrays but must only be counted once
+    	int removed = adjacents.length + dependents.length - (indexOf(adjacents, vertex) >= 0 ? 1 : 0);
+    	return new GraphSnapshot<T>(newVertices.remove(vertex), newDependents.remove(vertex), edgeCount - removed);
+    }
+
+    /**
+     * Gets a snapshot with an edge added from vertex1 to vertex2
+     *
+     * @param vertex1 is the vertex that the edge will be added from
+     * @param vertex2 is the vertex that the edge will be added to
+     * @return new snapshot with the edge, this snapshot if either vertex isn't in the graph or the edge exists
+     */
+    public GraphSnapshot<T> withEdge(T vertex1, T vertex2) {
+    	if (!hasVertex(vertex1) || !hasVertex(vertex2) || hasEdge(vertex1, vertex2)) {
+    		return this;
+    	}
+    	return new GraphSnapshot<T>(verticesMap.put(vertex1, with(verticesMap.get(vertex1), vertex2)),
+    			dependentsMap.put(vertex2, with(dependentsMap.get(vertex2), vertex1)), edgeCount + 1);
+    }
+
+    /**
+     * Gets a snapshot with the edge from vertex1 to vertex2 removed
+     *
+     * @param vertex1 is the vertex that the edge will be removed from
+     * @param vertex2 is the vertex that the edge will be removed to
+     * @return new snapshot without the edge, this snapshot if the edge isn't in the graph
+     */
+    public GraphSnapshot<T> withoutEdge(T vertex1, T vertex2) {
+    	if (!hasVertex(vertex1) || !hasVertex(vertex2) || !hasEdge(vertex1, vertex2)) {
+    		return this;
+    	}
+    	return new GraphSnapshot<T>(verticesMap.put(vertex1, without(verticesMap.get(vertex1), vertex2)),
+    			dependentsMap.put(vertex2, without(dependentsMap.get(vertex2), vertex1)), edgeCount - 1);
+    }
+
+    /**
+     * Not supported, snapshots can't be changed. Use withVertex
+     */
+    public void addVertex(T vertex) {
+    	throw new UnsupportedOperationException("GraphSnapshot can't be changed, use withVertex");
+    }
+
+    /**
+     * Not supported, snapshots can't be changed. Use withoutVertex
+     */
+    public void removeVertex(T vertex) {
+    	throw new UnsupportedOperationException("GraphSnapshot can't be changed, use withoutVertex");
+    }
+
+    /**
+     * Not supported, snapshots can't be changed. Use withEdge
+     */
+    public void addEdge(T vertex1, T vertex2) {
+    	throw new UnsupportedOperationException("GraphSnapshot can't be changed, use withEdge");
+    }
+
+    /**
+     * Not supported, snapshots can't be changed. Use withoutEdge
+     */
+    public void removeEdge(T vertex1, T vertex2) {
+    	throw new UnsupportedOperationException("GraphSnapshot can't be changed, use withoutEdge");
+    }
+
+    /**
+     * Returns a read only set that contains all the vertices
+     *
+     * @return Set of all the vertices in the graph
+     */
+    public Set<T> getAllVertices() {
+        return verticesMap.keySet();
+    }
+
+    /**
+     * Retrieves all the vertices that are adjacent to the given vertex
+     *
+     * @param vertex to check for adjacent vertices
+     * @return read only list of all vertices adjacent to the given vertex, null if the vertex isn't in the graph
+     */
+    public List<T> getAdjacentVerticesOf(T vertex) {
+    	return view(vertex == null ? null : verticesMap.get(vertex));
+    }
+
+    /**
+     * Retrieves all the vertices that have an edge to the given vertex
+     *
+     * @param vertex to check for incoming edges
+     * @return read only list of all vertices with an edge to the given vertex, null if the vertex isn't in the graph
+     */
+    public List<T> getDependentsOf(T vertex) {
+    	return view(vertex == null ? null : dependentsMap.get(vertex));
+    }
+
+    /**
+     * Checks whether the graph has the given value as a vertex
+     *
+     * @param vertex to check if it exists in the graph
+     * @return true if vertex exists in the graph, false otherwise
+     */
+    public boolean hasVertex(T vertex) {
+    	return vertex != null && verticesMap.containsKey(vertex);
+    }
+
+    /**
+     * Checks whether an edge exists from vertex1 to vertex2
+     *
+     * @return true if both vertices are in the graph with an edge between them, false otherwise
+     */
+    public boolean hasEdge(T vertex1, T vertex2) {
+    	Object[] adjacents = vertex1 == null ? null : verticesMap.get(vertex1);
+    	return adjacents != null && indexOf(adjacents, vertex2) >= 0;
+    }
+
+    /**
+     * Gets the number of edges in the graph
+     *
+     * @return number of edges in the graph
+     */
+    public int size() {
+        return edgeCount;
+    }
+
+    /**
+     * Gets the number of vertices in the graph
+     *
+     * @return the number of vertices in the graph
+     */
+    public int order() {
+        return verticesMap.size();
+    }
+
+    /**
+     * Wraps an adjacency array in a read only list
+     */
+    @SuppressWarnings("unchecked")
+    private List<T> view(Object[] array) {
+    	return array == null ? null : (List<T>) Collections.unmodifiableList(Arrays.asList(array));
+    }
+
+    /**
+     * Finds the position of a vertex in an adjacency array, -1 if it isn't there
+     */
+    private static int indexOf(Object[] array, Object vertex) {
+    	for (int i = 0; i < array.length; i++) {
+    		if (array[i].equals(vertex)) {
+    			return i;
+    		}
+    	}
+    	return -1;
+    }
+
+    /**
+     * Copies an adjacency array with a vertex added to the end
+     */
+    private static Object[] with(Object[] array, Object vertex) {
+    	Object[] newArray = Arrays.copyOf(array, array.length + 1);
+    	newArray[array.length] = vertex;
+    	return newArray;
+    }
+
+    /**
+     * Copies an adjacency array with a vertex removed, keeping the order of the rest
+     */
+    private static Object[] without(Object[] array, Object vertex) {
+    	int index = indexOf(array, vertex);
+    	if (index < 0) {
+    		return array;
+    	}
+    	if (array.length == 1) {
+    		return NONE;
+    	}
+    	Object[] newArray = new Object[array.length - 1];
+    	System.arraycopy(array, 0, newArray, 0, index);
+    	System.arraycopy(array, index + 1, newArray, index, array.length - index - 1);
+    	return newArray;
+    }
+}
@@ -0,0 +1,66 @@
+import java.nio.IntBuffer;
+
+/**
+ * Filename:   IndexedGraph.java
+ * Project:    p4
+ * Authors:    Aron Denenberg
+ * 
+ * A graph whose vertices have dense int ids from 0 to order() - 1 when its arrays are read, and whose
+ * edges can be read as compressed sparse row arrays: the adjacent ids of vertex id are
+ * targets()[offsets()[id]] up to targets()[offsets()[id + 1]]. Traversal code can walk these arrays
+ * directly instead of going through the vertex objects. The same arrays can be read as IntBuffers,
+ * which a graph kept outside the heap can hand out without copying.
+ * 
+ * Ids are only valid until the graph next changes. A graph that can be changed, such as CompactGraphImpl,
+ * may leave gaps in its ids while it is being changed and number its vertices again the next time the
+ * arrays are read, so code that keeps ids must read the arrays and ids again after a change.
+ * 
+ * @param <T> type of a vertex
+ */
+public interface IndexedGraph<T> extends GraphADT<T> {
+
+    /**
+     * Gets the id of a vertex
+     * 
+     * @param vertex to find the id of
+     * @return id of the vertex, -1 if the vertex isn't in the graph
+     */
+    public int idOf(T vertex);
+    
+    /**
+     * Gets the vertex with the given id
+     * 
+     * @param id of the vertex, from 0 to order() - 1
+     * @return the vertex with the given id
+     */
+    public T vertexOf(int id);
+    
+    /**
+     * Gets the start of each vertex's adjacent ids in targets()
+     * 
+     * @return array of offsets with order() + 1 entries, must not be modified
+     */
+    public int[] offsets();
+    
+    /**
+     * Gets the adjacent ids of every vertex laid out one after another
+     * 
+     * @return array of adjacent ids with size() entries, must not be modified
+     */
+    public int[] targets();
+
+    /**
+     * Gets the same offsets as offsets() as a buffer, without copying them if the graph can avoid it
+     *
+     * @return buffer of offsets with order() + 1 entries, must not be modified
+     */
+    public IntBuffer offsetBuffer();
+
+    /**
+     * Gets the same adjacent ids as targets() as a buffer, without copying them if the graph can avoid it
+     *
+     * @return buffer of adjacent ids with size() entries, must not be modified
+     */
+    public IntBuffer targetBuffer();
+
+}
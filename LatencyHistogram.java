@@ -0,0 +1,142 @@
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+
+/**
+ * Filename:   LatencyHistogram.java
+ * Project:    p4
+ * Authors:    Aron Denenberg
+ *
+ * Histogram of durations in nanoseconds with buckets on a log-linear scale, in the style of an HDR
+ * histogram. Values below 32 each get their own bucket, and every power of two above that is split into
+ * 32 equal buckets, so any recorded value is known to within about 3% using a fixed array of under 2000
+ * counters no matter how large the values get. Recording is one array increment and is safe from any
+ * number of threads without locking.
+ *
+ * Bugs or other notes: percentiles are read while other threads may still be recording, so they can be
+ * off by the values recorded during the read
+ */
+public class LatencyHistogram {
+
+	// number of bits of each value kept exactly, the rest are rounded down into a bucket
+	private static final int SUB_BITS = 5;
+	private static final int SUB_BUCKETS = 1 << SUB_BITS;
+
+	// field variables
+	private AtomicLongArray counts; // number of values recorded in each bucket
+	private AtomicLong total; // sum of every value recorded, for the mean
+	private AtomicLong max; // largest value recorded
+
+	/**
+	 * Constructor for the class. Creates an empty histogram
+	 */
+	public LatencyHistogram() {
+		counts = new AtomicLongArray((64 - SUB_BITS) * SUB_BUCKETS);
+		total = new AtomicLong();
+		max = new AtomicLong();
+	}
+
+	/**
+	 * Records one duration
+	 *
+	 * @param nanos is the duration, negative values are recorded as 0
+	 */
+	public void record(long nanos) {
+		long value = Math.max(0, nanos);
+		counts.incrementAndGet(bucketOf(value));
+		total.addAndGet(value);
+		long largest = max.get();
+		while (value > largest && !max.compareAndSet(largest, value)) {
+			largest = max.get();
+		}
+	}
+
+	/**
+	 * Gets the number of durations recorded
+	 *
+	 * @return number of durations
+	 */
+	public long getCount() {
+		long count = 0;
+		for (int i = 0; i < counts.length(); i++) {
+			count += counts.get(i);
+		}
+		return count;
+	}
+
+	/**
+	 * Gets the duration that the given percentage of recorded durations are at or below
+	 *
+	 * @param percentile is between 0 and 100, such as 99 for the 99th percentile
+	 * @return the duration in nanoseconds, to within the bucket size, 0 if nothing has been recorded
+	 */
+	public long getPercentile(double percentile) {
+		long count = getCount();
+		if (count == 0) {
+			return 0;
+		}
+		long rank = Math.max(1, (long) Math.ceil(count * Math.min(100, Math.max(0, percentile)) / 100));
+		long seen = 0;
+		for (int i = 0; i < counts.length(); i++) {
+			seen += counts.get(i);
+			if (seen >= rank) {
+				return Math.min(highestOf(i), max.get());
+			}
+		}
+		return max.get();
+	}
+
+	/**
+	 * Gets the largest duration recorded
+	 *
+	 * @return the duration in nanoseconds, 0 if nothing has been recorded
+	 */
+	public long getMax() {
+		return max.get();
+	}
+
+	/**
+	 * Gets the mean of the durations recorded
+	 *
+	 * @return mean duration in nanoseconds, 0 if nothing has been recorded
+	 */
+	public double getMean() {
+		long count = getCount();
+		return count == 0 ? 0 : (double) total.get() / count;
+	}
+
+	/**
+	 * Forgets every duration recorded
+	 */
+	public void reset() {
+		for (int i = 0; i < counts.length(); i++) {
+			counts.set(i, 0);
+		}
+		total.set(0);
+		max.set(0);
+	}
+
+	/**
+	 * Gets the bucket a value is counted in
+	 */
+	private static int bucketOf(long value) {
+		if (value < SUB_BUCKETS) {
+			return (int) value;
+		}
+		int highestBit = 63 - Long.numberOfLeadingZeros(value);
+		int shift = highestBit - SUB_BITS;
+		return (shift + 1) * SUB_BUCKETS + (int) ((value >>> shift) & (SUB_BUCKETS - 1));
+	}
+
+	/**
+	 * Gets the largest value counted in a bucket
+	 */
+	private static long highestOf(int bucket) {
+		if (bucket < SUB_BUCKETS) {
+			return bucket;
+		}
+		int shift = bucket / SUB_BUCKETS - 1;
+		long lowest = (long) (SUB_BUCKETS + bucket % SUB_BUCKETS) << shift;
+		return lowest + (1L << shift) - 1;
+	}
+}
@@ -0,0 +1,437 @@
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.AbstractList;
+import java.util.AbstractSet;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.zip.CRC32;
+
+
+/**
+ * Filename:   MappedCatalogGraph.java
+ * Project:    p4
+ * Authors:    Aron Denenberg
+ *
+ * Read only course graph served straight from a compiled binary catalog file. write() compiles any graph
+ * of course names into the file once, and open() memory maps it, so a new process is ready to answer
+ * queries without parsing json or building the graph vertex by vertex. Course names are only decoded
+ * when they are asked for.
+ *
+ * File layout, all ints big endian:
+ *   header:  magic "CSNP", version, vertex count V, edge count E, hash table size H, name byte count,
+ *            then a CRC32 checksum (as a long) of everything after the 32 byte header
+ *   int[V + 1] adjacency offsets and int[E] adjacency targets, as in IndexedGraph
+ *   int[V + 1] offsets of each name in the name bytes
+ *   int[H] open addressing hash table of id + 1 (0 for an empty slot), keyed by String.hashCode()
+ *   the UTF-8 bytes of every name, one after another
+ *
+ * Bugs or other notes: a file must be smaller than 2GB. The GraphADT methods that change a graph are not
+ * supported. open() checks the checksum, which reads the whole file once; open(fileName, false) skips
+ * it for a file the caller already trusts, such as one it just wrote. Read the adjacency ids with offsetBuffer() and targetBuffer(), which read
+ * the file in place, rather than offsets() and targets(), which copy it.
+ */
+public class MappedCatalogGraph implements IndexedGraph<String> {
+
+    // values identifying the file format
+    private static final int MAGIC = 0x43534E50; // "CSNP"
+    private static final int VERSION = 1;
+    private static final int HEADER_BYTES = 32;
+
+    /**
+     * The mapped file
+     */
+    private ByteBuffer buffer;
+
+    /**
+     * Number of vertices and edges in the graph
+     */
+    private int vertexCount;
+    private int edgeCount;
+
+    /**
+     * Views of the int sections of the file
+     */
+    private IntBuffer adjacencyOffsets;
+    private IntBuffer adjacencyTargets;
+    private IntBuffer nameOffsets;
+    private IntBuffer hashTable;
+
+    /**
+     * Position of the first name byte in the file
+     */
+    private int namesStart;
+
+
+    /**
+     * Constructor for the class, use open() to map a file
+     */
+    private MappedCatalogGraph(ByteBuffer buffer) throws IOException {
+    	this.buffer = buffer;
+    	if (buffer.limit() < HEADER_BYTES || buffer.getInt(0) != MAGIC) {
+    		throw new IOException("Not a compiled catalog file");
+    	}
+    	if (buffer.getInt(4) != VERSION) {
+    		throw new IOException("Unsupported compiled catalog version: " + buffer.getInt(4));
+    	}
+    	vertexCount = buffer.getInt(8);
+    	edgeCount = buffer.getInt(12);
+    	int tableSize = buffer.getInt(16);
+    	int nameBytes = buffer.getInt(20);
+    	int position = HEADER_BYTES;
+    	adjacencyOffsets = section(position, vertexCount + 1);
+    	position += 4 * (vertexCount + 1);
+    	adjacencyTargets = section(position, edgeCount);
+    	position += 4 * edgeCount;
+    	nameOffsets = section(position, vertexCount + 1);
+    	position += 4 * (vertexCount + 1);
+    	hashTable = section(position, tableSize);
+    	namesStart = position + 4 * tableSize;
+    	if (namesStart + nameBytes != buffer.limit()) {
+    		throw new IOException("Compiled catalog file is truncated");
+    	}
+    }
+
+    /**
+     * Memory maps a compiled catalog file and checks it against its checksum
+     *
+     * @param fileName is the file written by write()
+     * @return graph reading from the file
+     * @throws IOException if the file can't be read, isn't a compiled catalog or fails its checksum
+     */
+    public static MappedCatalogGraph open(String fileName) throws IOException {
+    	return open(fileName, true);
+    }
+
+    /**
+     * Memory maps a compiled catalog file. Without the checksum only the header is read and the rest of the
+     * file is paged in as queries reach it, so a damaged file may give wrong answers
+     *
+     * @param fileName is the file written by write()
+     * @param verify is whether to check the file against its checksum
+     * @return graph reading from the file
+     * @throws IOException if the file can't be read, isn't a compiled catalog, is the wrong size or fails
+     *         its checksum when checked
+     */
+    public static MappedCatalogGraph open(String fileName, boolean verify) throws IOException {
+    	try (RandomAccessFile file = new RandomAccessFile(fileName, "r");
+    			FileChannel channel = file.getChannel()) {
+    		// the mapping stays valid after the channel is closed
+    		MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+    		MappedCatalogGraph graph = new MappedCatalogGraph(buffer);
+    		if (verify) {
+    			graph.verify();
+    		}
+    		return graph;
+    	}
+    }
+
+    /**
+     * Checks the file against the checksum written with it. This reads the whole file, and is done by
+     * open() unless it is asked not to
+     *
+     * @throws IOException if the checksum doesn't match
+     */
+    public void verify() throws IOException {
+    	CRC32 crc = new CRC32();
+    	ByteBuffer body = buffer.duplicate();
+    	body.position(HEADER_BYTES);
+    	crc.update(body);
+    	if (crc.getValue() != buffer.getLong(24)) {
+    		throw new IOException("Compiled catalog checksum doesn't match");
+    	}
+    }
+
+    /**
+     * Compiles a graph of course names into a catalog file
+     *
+     * @param graph is the graph to compile
+     * @param fileName is the file to write
+     * @throws IOException if the file can't be written
+     */
+    public static void write(GraphADT<String> graph, String fileName) throws IOException {
+    	// give every course an id and encode its name
+    	int count = graph.order();
+    	String[] names = graph.getAllVertices().toArray(new String[count]);
+    	Map<String, Integer> ids = new HashMap<String, Integer>();
+    	byte[][] encoded = new byte[count][];
+    	int nameBytes = 0;
+    	for (int id = 0; id < count; id++) {
+    		ids.put(names[id], id);
+    		encoded[id] = names[id].getBytes(StandardCharsets.UTF_8);
+    		nameBytes += encoded[id].length;
+    	}
+    	int edges = 0;
+    	for (String name : names) {
+    		edges += graph.getAdjacentVerticesOf(name).size();
+    	}
+    	int tableSize = Integer.highestOneBit(Math.max(1, count) * 2 - 1) << 1; // power of two, at most half full
+    	long fileBytes = HEADER_BYTES + 4L * (2 * (count + 1) + edges + tableSize) + nameBytes;
+    	if (fileBytes > Integer.MAX_VALUE) {
+    		throw new IOException("Catalog is too large to compile: " + fileBytes + " bytes");
+    	}
+
+    	ByteBuffer buffer = ByteBuffer.allocate((int) fileBytes);
+    	buffer.position(HEADER_BYTES);
+    	int offset = 0;
+    	for (String name : names) {
+    		buffer.putInt(offset);
+    		offset += graph.getAdjacentVerticesOf(name).size();
+    	}
+    	buffer.putInt(offset);
+    	for (String name : names) {
+    		for (String adjacent : graph.getAdjacentVerticesOf(name)) {
+    			buffer.putInt(ids.get(adjacent));
+    		}
+    	}
+    	offset = 0;
+    	for (byte[] bytes : encoded) {
+    		buffer.putInt(offset);
+    		offset += bytes.length;
+    	}
+    	buffer.putInt(offset);
+    	int[] table = new int[tableSize];
+    	for (int id = 0; id < count; id++) {
+    		int slot = names[id].hashCode() & (tableSize - 1);
+    		while (table[slot] != 0) {
+    			slot = (slot + 1) & (tableSize - 1);
+    		}
+    		table[slot] = id + 1;
+    	}
+    	for (int entry : table) {
+    		buffer.putInt(entry);
+    	}
+    	for (byte[] bytes : encoded) {
+    		buffer.put(bytes);
+    	}
+
+    	CRC32 crc = new CRC32();
+    	crc.update(buffer.array(), HEADER_BYTES, buffer.capacity() - HEADER_BYTES);
+    	buffer.putInt(0, MAGIC).putInt(4, VERSION).putInt(8, count).putInt(12, edges).putInt(16, tableSize)
+    			.putInt(20, nameBytes).putLong(24, crc.getValue());
+    	buffer.rewind();
+    	try (RandomAccessFile file = new RandomAccessFile(fileName, "rw"); FileChannel channel = file.getChannel()) {
+    		channel.truncate(0);
+    		while (buffer.hasRemaining()) {
+    			channel.write(buffer);
+    		}
+    	}
+    }
+
+    /**
+     * Gets the id of a course by looking it up in the file's hash table
+     *
+     * @param vertex is the course name
+     * @return id of the course, -1 if it isn't in the catalog
+     */
+    public int idOf(String vertex) {
+    	if (vertex == null || hashTable.limit() == 0) {
+    		return -1;
+    	}
+    	byte[] bytes = vertex.getBytes(StandardCharsets.UTF_8);
+    	int mask = hashTable.limit() - 1;
+    	for (int slot = vertex.hashCode() & mask; ; slot = (slot + 1) & mask) {
+    		int entry = hashTable.get(slot);
+    		if (entry == 0) {
+    			return -1;
+    		}
+    		if (nameEquals(entry - 1, bytes)) {
+    			return entry - 1;
+    		}
+    	}
+    }
+
+    /**
+     * Decodes the name of the course with the given id
+     *
+     * @param id of the course
+     * @return the course name
+     */
+    public String vertexOf(int id) {
+    	int start = nameOffsets.get(id);
+    	byte[] bytes = new byte[nameOffsets.get(id + 1) - start];
+    	ByteBuffer name = buffer.duplicate();
+    	name.position(namesStart + start);
+    	name.get(bytes);
+    	return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Gets the start of each course's prerequisite ids in targets(), copied out of the file into a new
+     * array each time. offsetBuffer() reads them without copying
+     */
+    public int[] offsets() {
+    	int[] copy = new int[vertexCount + 1];
+    	adjacencyOffsets.duplicate().get(copy);
+    	return copy;
+    }
+
+    /**
+     * Gets the prerequisite ids of every course one after another, copied out of the file into a new
+     * array each time. targetBuffer() reads them without copying
+     */
+    public int[] targets() {
+    	int[] copy = new int[edgeCount];
+    	adjacencyTargets.duplicate().get(copy);
+    	return copy;
+    }
+
+    /**
+     * Gets the start of each course's prerequisite ids, read from the mapped file
+     */
+    public IntBuffer offsetBuffer() {
+    	return adjacencyOffsets.asReadOnlyBuffer();
+    }
+
+    /**
+     * Gets the prerequisite ids of every course one after another, read from the mapped file
+     */
+    public IntBuffer targetBuffer() {
+    	return adjacencyTargets.asReadOnlyBuffer();
+    }
+
+    /**
+     * Returns a read only set of all the course names, decoded as they are iterated
+     *
+     * @return Set of all the vertices in the graph
+     */
+    public Set<String> getAllVertices() {
+        return new AbstractSet<String>() {
+        	public Iterator<String> iterator() {
+        		return new Iterator<String>() {
+        			private int next = 0;
+
+        			public boolean hasNext() {
+        				return next < vertexCount;
+        			}
+
+        			public String next() {
+        				if (next >= vertexCount) {
+        					throw new NoSuchElementException();
+        				}
+        				return vertexOf(next++);
+        			}
+        		};
+        	}
+
+        	public int size() {
+        		return vertexCount;
+        	}
+
+        	public boolean contains(Object vertex) {
+        		return vertex instanceof String && idOf((String) vertex) >= 0;
+        	}
+        };
+    }
+
+    /**
+     * Retrieves the prerequisites of the given course as a read only list decoded as it is read
+     *
+     * @param vertex is the course name
+     * @return list of the course's prerequisites, null if the course isn't in the catalog
+     */
+    public List<String> getAdjacentVerticesOf(String vertex) {
+    	int id = idOf(vertex);
+    	if (id < 0) {
+    		return null;
+    	}
+    	final int start = adjacencyOffsets.get(id);
+    	final int end = adjacencyOffsets.get(id + 1);
+        return new AbstractList<String>() {
+        	public String get(int index) {
+        		if (index < 0 || index >= end - start) {
+        			throw new IndexOutOfBoundsException("Index: " + index);
+        		}
+        		return vertexOf(adjacencyTargets.get(start + index));
+        	}
+
+        	public int size() {
+        		return end - start;
+        	}
+        };
+    }
+
+    /**
+     * Gets the number of edges in the graph
+     *
+     * @return number of edges in the graph
+     */
+    public int size() {
+        return edgeCount;
+    }
+
+    /**
+     * Gets the number of vertices in the graph
+     *
+     * @return the number of vertices in the graph
+     */
+    public int order() {
+        return vertexCount;
+    }
+
+    /**
+     * Not supported, compiled catalogs are read only
+     */
+    public void addVertex(String vertex) {
+    	throw new UnsupportedOperationException("MappedCatalogGraph is read only");
+    }
+
+    /**
+     * Not supported, compiled catalogs are read only
+     */
+    public void removeVertex(String vertex) {
+    	throw new UnsupportedOperationException("MappedCatalogGraph is read only");
+    }
+
+    /**
+     * Not supported, compiled catalogs are read only
+     */
+    public void addEdge(String vertex1, String vertex2) {
+    	throw new UnsupportedOperationException("MappedCatalogGraph is read only");
+    }
+
+    /**
+     * Not supported, compiled catalogs are read only
+     */
+    public void removeEdge(String vertex1, String vertex2) {
+    	throw new UnsupportedOperationException("MappedCatalogGraph is read only");
+    }
+
+    /**
+     * Gets a view of part of the file as ints
+     */
+    private IntBuffer section(int position, int length) throws IOException {
+    	if (length < 0 || position + 4L * length > buffer.limit()) {
+    		throw new IOException("Compiled catalog file is truncated");
+    	}
+    	ByteBuffer slice = buffer.duplicate();
+    	slice.position(position);
+    	slice.limit(position + 4 * length);
+    	return slice.slice().asIntBuffer();
+    }
+
+    /**
+     * Compares the name of the course with the given id against encoded name bytes without decoding it
+     */
+    private boolean nameEquals(int id, byte[] bytes) {
+    	int start = nameOffsets.get(id);
+    	if (nameOffsets.get(id + 1) - start != bytes.length) {
+    		return false;
+    	}
+    	int position = namesStart + start;
+    	for (int i = 0; i < bytes.length; i++) {
+    		if (buffer.get(position + i) != bytes[i]) {
+    			return false;
+    		}
+    	}
+    	return true;
+    }
+}
@@ -0,0 +1,384 @@
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+
+/**
+ * Filename:   OrderedGraphImpl.java
+ * Project:    p4
+ * Authors:    Aron Denenberg
+ *
+ * Graph that keeps a topological order of its vertices up to date as edges are added, so whether the
+ * graph has a cycle can be read in O(1) instead of re-sorting the whole graph. Every vertex has a
+ * position and, for every edge, the vertex the edge is to has a lower position than the vertex it is
+ * from, so for a course graph prerequisites always come first. When a new edge breaks that rule only the
+ * vertices with positions between its two ends are searched and shuffled (the Pearce-Kelly algorithm).
+ *
+ * An edge that would close a cycle can be refused with tryAddEdge. If it is added anyway with addEdge
+ * it is stored but flagged as pending and left out of the order, and isAcyclic() is false until enough
+ * edges are removed for every pending edge to fit into the order again.
+ *
+ * Bugs or other notes: positions only grow, a vertex added after many reorders may have a large position
+ *
+ * @param <T> type of a vertex
+ */
+public class OrderedGraphImpl<T> implements GraphADT<T> {
+
+    /**
+     * Graph that stores the vertices and edges, including pending edges
+     */
+    private GraphImpl<T> graph;
+
+    /**
+     * Position of each vertex in the topological order
+     */
+    private Map<T, Integer> positions;
+
+    /**
+     * Next position to give a new vertex
+     */
+    private int nextPosition;
+
+    /**
+     * Store each vertex and the vertices it has a pending edge to, that is an edge that closes a cycle and
+     * so is left out of the order
+     */
+    private Map<T, Set<T>> pendingMap;
+
+    /**
+     * Number of pending edges
+     */
+    private int pendingCount;
+
+
+    /**
+     * Construct and initialize an empty graph
+     */
+    public OrderedGraphImpl() {
+        graph = new GraphImpl<T>();
+        positions = new HashMap<T, Integer>();
+        pendingMap = new HashMap<T, Set<T>>();
+        nextPosition = 0;
+        pendingCount = 0;
+    }
+
+    /**
+     * Adds given vertex to the graph at the end of the order. Returns without error if the input is null or is
+     * a vertex that already exists in the graph
+     *
+     * @param vertex to add to the graph
+     */
+    public void addVertex(T vertex) {
+        if (vertex == null || graph.hasVertex(vertex)) {
+        	return;
+        }
+        graph.addVertex(vertex);
+        positions.put(vertex, nextPosition++);
+    }
+
+    /**
+     * Removes the given vertex and all edges to or from it. Removing a vertex never breaks the order, but it
+     * may break cycles so pending edges are tried again
+     *
+     * @param vertex to remove from the graph
+     */
+    public void removeVertex(T vertex) {
+    	if (vertex == null || !graph.hasVertex(vertex)) {
+        	return;
+        }
+    	// forget pending edges from the vertex and to the vertex
+    	Set<T> pendingFrom = pendingMap.remove(vertex);
+    	if (pendingFrom != null) {
+    		pendingCount -= pendingFrom.size();
+    	}
+    	for (T dependent : graph.getDependentsOf(vertex)) {
+    		if (isPending(dependent, vertex)) {
+    			unflag(dependent, vertex);
+    		}
+    	}
+    	graph.removeVertex(vertex);
+    	positions.remove(vertex);
+    	retryPending();
+    }
+
+    /**
+     * Adds an edge between the two given vertices if they are both not null, both exist in the graph, and an edge
+     * does not already exist between them. If the edge closes a cycle it is still added but is flagged as pending,
+     * making isAcyclic() false
+     *
+     * @param vertex1 is the vertex that the edge will be added from
+     * @param vertex2 is the vertex that the edge will be added to
+     */
+    public void addEdge(T vertex1, T vertex2) {
+        if (!canAdd(vertex1, vertex2)) {
+        	return;
+        }
+        graph.addEdge(vertex1, vertex2);
+        if (!reorder(vertex1, vertex2)) {
+        	flag(vertex1, vertex2);
+        }
+    }
+
+    /**
+     * Adds an edge between the two given vertices only if it doesn't close a cycle
+     *
+     * @param vertex1 is the vertex that the edge will be added from
+     * @param vertex2 is the vertex that the edge will be added to
+     * @return true if the edge was added or already existed, false if it was refused because it would close a
+     *         cycle or either vertex isn't in the graph
+     */
+    public boolean tryAddEdge(T vertex1, T vertex2) {
+    	if (vertex1 == null || vertex2 == null || !graph.hasVertex(vertex1) || !graph.hasVertex(vertex2)) {
+    		return false;
+    	}
+    	if (graph.getAdjacentVerticesOf(vertex1).contains(vertex2)) {
+    		return !isPending(vertex1, vertex2);
+    	}
+    	if (!reorder(vertex1, vertex2)) {
+    		return false;
+    	}
+    	graph.addEdge(vertex1, vertex2);
+    	return true;
+    }
+
+    /**
+     * Removes the edge between the two given vertices if it exists. Removing an edge never breaks the order,
+     * but it may break cycles so pending edges are tried again
+     *
+     * @param vertex1 is the vertex that the edge will be removed from
+     * @param vertex2 is the vertex that the edge will be removed to
+     */
+    public void removeEdge(T vertex1, T vertex2) {
+    	if (vertex1 == null || vertex2 == null || !graph.hasVertex(vertex1) || !graph.hasVertex(vertex2)
+    			|| !graph.getAdjacentVerticesOf(vertex1).contains(vertex2)) {
+    		return;
+    	}
+    	graph.removeEdge(vertex1, vertex2);
+    	if (isPending(vertex1, vertex2)) {
+    		unflag(vertex1, vertex2);
+    	}
+    	retryPending();
+    }
+
+    /**
+     * Indicates whether the graph has no cycles. O(1)
+     *
+     * @return true if the graph has no cycles, false otherwise
+     */
+    public boolean isAcyclic() {
+    	return pendingCount == 0;
+    }
+
+    /**
+     * Gets the vertices in the maintained order, where every vertex comes after the vertices it has edges to
+     *
+     * @return list of all vertices in order, null if the graph has a cycle
+     */
+    public List<T> getOrder() {
+    	if (!isAcyclic()) {
+    		return null;
+    	}
+    	List<T> order = new ArrayList<T>(positions.keySet());
+    	Collections.sort(order, byPosition());
+    	return order;
+    }
+
+    /**
+     * Returns a set that contains all the vertices
+     *
+     * @return Set of all the vertices in the graph
+     */
+    public Set<T> getAllVertices() {
+        return graph.getAllVertices();
+    }
+
+    /**
+     * Retrieves all the vertices that are adjacent to the given vertex, including through pending edges
+     *
+     * @param vertex to check for adjacent vertices
+     * @return list of all vertices adjacent to the given vertex
+     */
+    public List<T> getAdjacentVerticesOf(T vertex) {
+        return graph.getAdjacentVerticesOf(vertex);
+    }
+
+    /**
+     * Gets the number of edges in the graph, including pending edges
+     *
+     * @return number of edges in the graph
+     */
+    public int size() {
+        return graph.size();
+    }
+
+    /**
+     * Gets the number of vertices in the graph
+     *
+     * @return the number of vertices in the graph
+     */
+    public int order() {
+        return graph.order();
+    }
+
+    /**
+     * Checks whether an edge may be added by addEdge
+     */
+    private boolean canAdd(T vertex1, T vertex2) {
+    	return vertex1 != null && vertex2 != null && graph.hasVertex(vertex1) && graph.hasVertex(vertex2)
+    			&& !graph.getAdjacentVerticesOf(vertex1).contains(vertex2);
+    }
+
+    /**
+     * Makes room in the order for an edge from vertex1 to vertex2, which needs vertex2 to come before vertex1.
+     * The vertices after vertex1 that depend on it and the vertices before vertex2 that it depends on are found,
+     * and the first group is moved after the second using the same set of positions
+     *
+     * @param vertex1 is the vertex the edge is from
+     * @param vertex2 is the vertex the edge is to
+     * @return true if the order now allows the edge, false if the edge would close a cycle
+     */
+    private boolean reorder(T vertex1, T vertex2) {
+    	int lower = positions.get(vertex1);
+    	int upper = positions.get(vertex2);
+    	if (upper < lower) {
+    		return true; // already in a valid order
+    	}
+    	if (vertex1.equals(vertex2)) {
+    		return false;
+    	}
+
+    	// vertices that depend on vertex1 with positions below upper. Reaching vertex2 means vertex2 already
+    	// depends on vertex1, so the edge would close a cycle
+    	List<T> forward = new ArrayList<T>();
+    	Set<T> visited = new HashSet<T>();
+    	Deque<T> stack = new ArrayDeque<T>();
+    	stack.push(vertex1);
+    	visited.add(vertex1);
+    	while (!stack.isEmpty()) {
+    		T current = stack.pop();
+    		forward.add(current);
+    		for (T dependent : graph.getDependentsOf(current)) {
+    			if (isPending(dependent, current)) {
+    				continue;
+    			}
+    			int position = positions.get(dependent);
+    			if (position == upper) {
+    				return false;
+    			}
+    			if (position < upper && visited.add(dependent)) {
+    				stack.push(dependent);
+    			}
+    		}
+    	}
+
+    	// vertices that vertex2 depends on with positions above lower
+    	List<T> backward = new ArrayList<T>();
+    	stack.push(vertex2);
+    	visited.add(vertex2);
+    	while (!stack.isEmpty()) {
+    		T current = stack.pop();
+    		backward.add(current);
+    		for (T adjacent : graph.getAdjacentVerticesOf(current)) {
+    			if (isPending(current, adjacent)) {
+    				continue;
+    			}
+    			if (positions.get(adjacent) > lower && visited.add(adjacent)) {
+    				stack.push(adjacent);
+    			}
+    		}
+    	}
+
+    	// hand the positions the two groups held, lowest first, to the backward group then the forward group
+    	Collections.sort(forward, byPosition());
+    	Collections.sort(backward, byPosition());
+    	List<Integer> pool = new ArrayList<Integer>(forward.size() + backward.size());
+    	for (T vertex : backward) {
+    		pool.add(positions.get(vertex));
+    	}
+    	for (T vertex : forward) {
+    		pool.add(positions.get(vertex));
+    	}
+    	Collections.sort(pool);
+    	Iterator<Integer> next = pool.iterator();
+    	for (T vertex : backward) {
+    		positions.put(vertex, next.next());
+    	}
+    	for (T vertex : forward) {
+    		positions.put(vertex, next.next());
+    	}
+    	return true;
+    }
+
+    /**
+     * Tries to fit every pending edge into the order again, unflagging the ones that no longer close a cycle
+     */
+    private void retryPending() {
+    	if (pendingCount == 0) {
+    		return;
+    	}
+    	List<T> sources = new ArrayList<T>(pendingMap.keySet());
+    	for (T vertex1 : sources) {
+    		for (T vertex2 : new ArrayList<T>(pendingMap.get(vertex1))) {
+    			// the edge must not count as pending while reorder searches, or it would be skipped
+    			unflag(vertex1, vertex2);
+    			if (!reorder(vertex1, vertex2)) {
+    				flag(vertex1, vertex2);
+    			}
+    		}
+    	}
+    }
+
+    /**
+     * Checks whether the edge from vertex1 to vertex2 is pending
+     */
+    private boolean isPending(T vertex1, T vertex2) {
+    	Set<T> pending = pendingMap.get(vertex1);
+    	return pending != null && pending.contains(vertex2);
+    }
+
+    /**
+     * Flags the edge from vertex1 to vertex2 as pending
+     */
+    private void flag(T vertex1, T vertex2) {
+    	Set<T> pending = pendingMap.get(vertex1);
+    	if (pending == null) {
+    		pending = new HashSet<T>();
+    		pendingMap.put(vertex1, pending);
+    	}
+    	if (pending.add(vertex2)) {
+    		pendingCount++;
+    	}
+    }
+
+    /**
+     * Removes the pending flag from the edge from vertex1 to vertex2
+     */
+    private void unflag(T vertex1, T vertex2) {
+    	Set<T> pending = pendingMap.get(vertex1);
+    	if (pending != null && pending.remove(vertex2)) {
+    		pendingCount--;
+    		if (pending.isEmpty()) {
+    			pendingMap.remove(vertex1);
+    		}
+    	}
+    }
+
+    /**
+     * Compares vertices by their position in the order
+     */
+    private Comparator<T> byPosition() {
+    	return new Comparator<T>() {
+    		public int compare(T vertex1, T vertex2) {
+    			return Integer.compare(positions.get(vertex1), positions.get(vertex2));
+    		}
+    	};
+    }
+}
@@ -0,0 +1,161 @@
+import java.util.List;
+import java.util.Set;
+
+
+/**
+ * Filename:   PersistentGraphImpl.java
+ * Project:    p4
+ * Authors:    Aron Denenberg
+ *
+ * Graph that can be forked in O(1) to try out changes without touching the original, such as waiving or
+ * adding prerequisites to see what a change to the catalog would do. The graph is an immutable
+ * GraphSnapshot, and every change replaces it with a new snapshot that shares all unchanged structure
+ * with the old one. A fork starts out sharing the whole snapshot, so each fork only costs memory for the
+ * vertices and edges it changes, and changes to a fork are never seen by the graph it came from or the
+ * other way round.
+ *
+ * Incoming edges are kept in the snapshot as well, so wrappers that need them, such as
+ * ClosureCachingGraph, read them from here instead of building their own copy for each fork.
+ *
+ * Bugs or other notes: not thread safe, use ConcurrentGraphImpl to share one graph between threads.
+ * The list from getAdjacentVerticesOf is read only.
+ *
+ * @param <T> type of a vertex
+ */
+public class PersistentGraphImpl<T> implements DependentsGraph<T> {
+
+    /**
+     * Current version of the graph
+     */
+    private GraphSnapshot<T> current;
+
+
+    /**
+     * Construct and initialize an empty graph
+     */
+    public PersistentGraphImpl() {
+        this(GraphSnapshot.<T>empty());
+    }
+
+    /**
+     * Construct a graph that starts from the given snapshot
+     *
+     * @param snapshot is the starting version of the graph
+     */
+    public PersistentGraphImpl(GraphSnapshot<T> snapshot) {
+        current = snapshot;
+    }
+
+    /**
+     * Makes a copy of the graph in O(1). The copy and this graph can then be changed independently
+     *
+     * @return new graph with the same vertices and edges
+     */
+    public PersistentGraphImpl<T> fork() {
+    	return new PersistentGraphImpl<T>(current);
+    }
+
+    /**
+     * Gets the current version of the graph, which won't change when this graph does
+     *
+     * @return the current snapshot
+     */
+    public GraphSnapshot<T> snapshot() {
+    	return current;
+    }
+
+    /**
+     * Adds given vertex to the graph
+     *
+     * @param vertex to add to the graph
+     */
+    public void addVertex(T vertex) {
+        current = current.withVertex(vertex);
+    }
+
+    /**
+     * Removes the given vertex and all edges to or from it
+     *
+     * @param vertex to remove from the graph
+     */
+    public void removeVertex(T vertex) {
+    	current = current.withoutVertex(vertex);
+    }
+
+    /**
+     * Adds an edge between the two given vertices
+     *
+     * @param vertex1 is the vertex that the edge will be added from
+     * @param vertex2 is the vertex that the edge will be added to
+     */
+    public void addEdge(T vertex1, T vertex2) {
+    	current = current.withEdge(vertex1, vertex2);
+    }
+
+    /**
+     * Removes the edge between the two given vertices
+     *
+     * @param vertex1 is the vertex that the edge will be removed from
+     * @param vertex2 is the vertex that the edge will be removed to
+     */
+    public void removeEdge(T vertex1, T vertex2) {
+    	current = current.withoutEdge(vertex1, vertex2);
+    }
+
+    /**
+     * Returns a read only set that contains all the vertices
+     *
+     * @return Set of all the vertices in the graph
+     */
+    public Set<T> getAllVertices() {
+        return current.getAllVertices();
+    }
+
+    /**
+     * Retrieves all the vertices that are adjacent to the given vertex
+     *
+     * @param vertex to check for adjacent vertices
+     * @return read only list of all vertices adjacent to the given vertex
+     */
+    public List<T> getAdjacentVerticesOf(T vertex) {
+        return current.getAdjacentVerticesOf(vertex);
+    }
+
+    /**
+     * Retrieves all the vertices that have an edge to the given vertex
+     *
+     * @param vertex to check for incoming edges
+     * @return read only list of all vertices with an edge to the given vertex, null if the vertex isn't in the graph
+     */
+    public List<T> getDependentsOf(T vertex) {
+    	return current.getDependentsOf(vertex);
+    }
+
+    /**
+     * Checks whether the graph has the given value as a vertex
+     *
+     * @param vertex to check if it exists in the graph
+     * @return true if vertex exists in the graph, false otherwise
+     */
+    public boolean hasVertex(T vertex) {
+    	return current.hasVertex(vertex);
+    }
+
+    /**
+     * Gets the number of edges in the graph
+     *
+     * @return number of edges in the graph
+     */
+    public int size() {
+        return current.size();
+    }
+
+    /**
+     * Gets the number of vertices in the graph
+     *
+     * @return the number of vertices in the graph
+     */
+    public int order() {
+        return current.order();
+    }
+}
@@ -0,0 +1,412 @@
+import java.util.AbstractSet;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+/**
+ * Filename:   PersistentHashMap.java
+ * Project:    p4
+ * Authors:    Aron Denenberg
+ *
+ * Immutable hash map where put and remove return a new map and leave this one unchanged. The map is a
+ * hash array mapped trie: each level of the trie uses 5 bits of the key's hash to pick one of 32 slots,
+ * and only slots that are in use take up space. A change copies just the nodes on the path to the key,
+ * O(log32 n) of them, and the new map shares every other node with the old one. Since maps are never
+ * changed after they are built they can be read from any number of threads without locking.
+ *
+ * Bugs or other notes: null keys are not supported
+ *
+ * @param <K> type of a key
+ * @param <V> type of a value
+ */
+public final class PersistentHashMap<K, V> {
+
+	// number of hash bits used by each level of the trie
+	private static final int BITS = 5;
+	private static final int MASK = (1 << BITS) - 1;
+
+	// shared empty map
+	@SuppressWarnings("rawtypes")
+	private static final PersistentHashMap EMPTY = new PersistentHashMap<Object, Object>(null, 0);
+
+	// field variables
+	private final Node root; // root of the trie, null for the empty map
+	private final int size; // number of keys in the map
+
+	/**
+	 * Constructor for the class, use empty() to get a map
+	 */
+	private PersistentHashMap(Node root, int size) {
+		this.root = root;
+		this.size = size;
+	}
+
+	/**
+	 * Gets the empty map
+	 *
+	 * @return a map with no keys
+	 */
+	@SuppressWarnings("unchecked")
+	public static <K, V> PersistentHashMap<K, V> empty() {
+		return EMPTY;
+	}
+
+	/**
+	 * Gets the number of keys in the map
+	 */
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * Gets the value stored for the given key
+	 *
+	 * @param key to look up
+	 * @return value stored for the key, null if the key isn't in the map
+	 */
+	@SuppressWarnings("unchecked")
+	public V get(Object key) {
+		if (root == null || key == null) {
+			return null;
+		}
+		return (V) root.find(key, hash(key), 0);
+	}
+
+	/**
+	 * Checks whether the map has the given key
+	 */
+	public boolean containsKey(Object key) {
+		return get(key) != null;
+	}
+
+	/**
+	 * Gets a map with the given key mapped to the given value
+	 *
+	 * @param key to store, must not be null
+	 * @param value to store for the key, must not be null
+	 * @return new map with the key stored, or this map if the key already had the same value
+	 */
+	public PersistentHashMap<K, V> put(K key, V value) {
+		Node start = root == null ? new BitmapNode(0, new Object[0]) : root;
+		boolean[] added = new boolean[1];
+		Node newRoot = start.put(key, value, hash(key), 0, added);
+		if (newRoot == root) {
+			return this;
+		}
+		return new PersistentHashMap<K, V>(newRoot, added[0] ? size + 1 : size);
+	}
+
+	/**
+	 * Gets a map without the given key
+	 *
+	 * @param key to remove
+	 * @return new map without the key, or this map if the key wasn't in it
+	 */
+	public PersistentHashMap<K, V> remove(Object key) {
+		if (root == null || key == null) {
+			return this;
+		}
+		Node newRoot = root.remove(key, hash(key), 0);
+		if (newRoot == root) {
+			return this;
+		}
+		return newRoot == null ? PersistentHashMap.<K, V>empty() : new PersistentHashMap<K, V>(newRoot, size - 1);
+	}
+
+	/**
+	 * Gets a read only set view of the keys in the map. Since the map never changes, neither does the view
+	 *
+	 * @return set of all keys in the map
+	 */
+	public Set<K> keySet() {
+		return new AbstractSet<K>() {
+			public Iterator<K> iterator() {
+				return new KeyIterator<K>(root);
+			}
+
+			public int size() {
+				return size;
+			}
+
+			public boolean contains(Object key) {
+				return containsKey(key);
+			}
+		};
+	}
+
+	/**
+	 * Spreads the bits of a key's hash code so keys with similar hash codes land in different slots
+	 */
+	private static int hash(Object key) {
+		int h = key.hashCode();
+		return h ^ (h >>> 16);
+	}
+
+	/**
+	 * A node of the trie
+	 */
+	private interface Node {
+
+		/**
+		 * Gets the value stored for the key below this node, null if there is none
+		 */
+		Object find(Object key, int hash, int shift);
+
+		/**
+		 * Gets a node storing the key below this node, this node itself if nothing changed. added[0] is
+		 * set to true if the key wasn't already stored
+		 */
+		Node put(Object key, Object value, int hash, int shift, boolean[] added);
+
+		/**
+		 * Gets a node without the key below this node, this node itself if the key wasn't stored or null if
+		 * nothing is left
+		 */
+		Node remove(Object key, int hash, int shift);
+	}
+
+	/**
+	 * Node with up to 32 slots, one per value of the 5 hash bits used at its level. The bitmap has a bit
+	 * set for each slot in use, and each slot in use takes two entries of the array: a key and its value,
+	 * or null and the node for the next level when several keys share the slot
+	 */
+	private static final class BitmapNode implements Node {
+
+		// field variables
+		private final int bitmap; // slots in use
+		private final Object[] array; // two entries for each slot in use, in slot order
+
+		BitmapNode(int bitmap, Object[] array) {
+			this.bitmap = bitmap;
+			this.array = array;
+		}
+
+		public Object find(Object key, int hash, int shift) {
+			int bit = 1 << ((hash >>> shift) & MASK);
+			if ((bitmap & bit) == 0) {
+				return null;
+			}
+			int index = 2 * Integer.bitCount(bitmap & (bit - 1));
+			Object slotKey = array[index];
+			if (slotKey == null) {
+				return ((Node) array[index + 1]).find(key, hash, shift + BITS);
+			}
+			return key.equals(slotKey) ? array[index + 1] : null;
+		}
+
+		public Node put(Object key, Object value, int hash, int shift, boolean[] added) {
+			int bit = 1 << ((hash >>> shift) & MASK);
+			int index = 2 * Integer.bitCount(bitmap & (bit - 1));
+			if ((bitmap & bit) == 0) {
+				// slot is free, copy the array with the new key and value inserted
+				Object[] newArray = new Object[array.length + 2];
+				System.arraycopy(array, 0, newArray, 0, index);
+				newArray[index] = key;
+				newArray[index + 1] = value;
+				System.arraycopy(array, index, newArray, index + 2, array.length - index);
+				added[0] = true;
+				return new BitmapNode(bitmap | bit, newArray);
+			}
+			Object slotKey = array[index];
+			Object slotValue = array[index + 1];
+			Node newSlot;
+			if (slotKey == null) {
+				Node child = (Node) slotValue;
+				newSlot = child.put(key, value, hash, shift + BITS, added);
+				if (newSlot == child) {
+					return this;
+				}
+			} else if (key.equals(slotKey)) {
+				if (value == slotValue) {
+					return this;
+				}
+				return new BitmapNode(bitmap, with(index + 1, value));
+			} else {
+				// two keys share the slot, push both down a level
+				added[0] = true;
+				newSlot = pair(slotKey, slotValue, hash(slotKey), key, value, hash, shift + BITS);
+			}
+			Object[] newArray = with(index + 1, newSlot);
+			newArray[index] = null;
+			return new BitmapNode(bitmap, newArray);
+		}
+
+		public Node remove(Object key, int hash, int shift) {
+			int bit = 1 << ((hash >>> shift) & MASK);
+			if ((bitmap & bit) == 0) {
+				return this;
+			}
+			int index = 2 * Integer.bitCount(bitmap & (bit - 1));
+			Object slotKey = array[index];
+			if (slotKey == null) {
+				Node child = (Node) array[index + 1];
+				Node newChild = child.remove(key, hash, shift + BITS);
+				if (newChild == child) {
+					return this;
+				}
+				if (newChild != null) {
+					return new BitmapNode(bitmap, with(index + 1, newChild));
+				}
+			} else if (!key.equals(slotKey)) {
+				return this;
+			}
+			// the slot is now empty, copy the array without it
+			if (bitmap == bit) {
+				return null;
+			}
+			Object[] newArray = new Object[array.length - 2];
+			System.arraycopy(array, 0, newArray, 0, index);
+			System.arraycopy(array, index + 2, newArray, index, array.length - index - 2);
+			return new BitmapNode(bitmap & ~bit, newArray);
+		}
+
+		/**
+		 * Copies the array with one entry replaced
+		 */
+		private Object[] with(int index, Object value) {
+			Object[] newArray = array.clone();
+			newArray[index] = value;
+			return newArray;
+		}
+	}
+
+	/**
+	 * Node for keys whose hashes are equal in every bit, searched by equals
+	 */
+	private static final class CollisionNode implements Node {
+
+		// field variables
+		private final int hash; // hash shared by every key in the node
+		private final Object[] array; // key followed by value for each key in the node
+
+		CollisionNode(int hash, Object[] array) {
+			this.hash = hash;
+			this.array = array;
+		}
+
+		public Object find(Object key, int hash, int shift) {
+			for (int i = 0; i < array.length; i += 2) {
+				if (key.equals(array[i])) {
+					return array[i + 1];
+				}
+			}
+			return null;
+		}
+
+		public Node put(Object key, Object value, int hash, int shift, boolean[] added) {
+			for (int i = 0; i < array.length; i += 2) {
+				if (key.equals(array[i])) {
+					if (array[i + 1] == value) {
+						return this;
+					}
+					Object[] newArray = array.clone();
+					newArray[i + 1] = value;
+					return new CollisionNode(hash, newArray);
+				}
+			}
+			Object[] newArray = new Object[array.length + 2];
+			System.arraycopy(array, 0, newArray, 0, array.length);
+			newArray[array.length] = key;
+			newArray[array.length + 1] = value;
+			added[0] = true;
+			return new CollisionNode(hash, newArray);
+		}
+
+		public Node remove(Object key, int hash, int shift) {
+			for (int i = 0; i < array.length; i += 2) {
+				if (key.equals(array[i])) {
+					if (array.length == 2) {
+						return null;
+					}
+					Object[] newArray = new Object[array.length - 2];
+					System.arraycopy(array, 0, newArray, 0, i);
+					System.arraycopy(array, i + 2, newArray, i, array.length - i - 2);
+					return new CollisionNode(hash, newArray);
+				}
+			}
+			return this;
+		}
+	}
+
+	/**
+	 * Builds the node holding two keys that share a slot at the level above
+	 */
+	private static Node pair(Object key1, Object value1, int hash1, Object key2, Object value2, int hash2,
+			int shift) {
+		if (hash1 == hash2 || shift >= 32) {
+			return new CollisionNode(hash1, new Object[] { key1, value1, key2, value2 });
+		}
+		int slot1 = (hash1 >>> shift) & MASK;
+		int slot2 = (hash2 >>> shift) & MASK;
+		if (slot1 == slot2) {
+			Node child = pair(key1, value1, hash1, key2, value2, hash2, shift + BITS);
+			return new BitmapNode(1 << slot1, new Object[] { null, child });
+		}
+		Object[] array = slot1 < slot2 ? new Object[] { key1, value1, key2, value2 }
+				: new Object[] { key2, value2, key1, value1 };
+		return new BitmapNode((1 << slot1) | (1 << slot2), array);
+	}
+
+	/**
+	 * Iterator over the keys of the trie, walking the nodes with an explicit stack
+	 */
+	private static final class KeyIterator<K> implements Iterator<K> {
+
+		// field variables
+		private final Deque<Object[]> arrays = new ArrayDeque<Object[]>(); // arrays of the nodes being walked
+		private final Deque<Integer> positions = new ArrayDeque<Integer>(); // next entry of each array
+		private Object nextKey; // key to return next, null once every key has been returned
+
+		KeyIterator(Node root) {
+			if (root != null) {
+				push(root);
+			}
+			advance();
+		}
+
+		public boolean hasNext() {
+			return nextKey != null;
+		}
+
+		@SuppressWarnings("unchecked")
+		public K next() {
+			if (nextKey == null) {
+				throw new NoSuchElementException();
+			}
+			Object key = nextKey;
+			advance();
+			return (K) key;
+		}
+
+		/**
+		 * Starts walking a node
+		 */
+		private void push(Node node) {
+			arrays.push(node instanceof BitmapNode ? ((BitmapNode) node).array : ((CollisionNode) node).array);
+			positions.push(0);
+		}
+
+		/**
+		 * Moves to the next key, descending into child nodes as they are found
+		 */
+		private void advance() {
+			nextKey = null;
+			while (!arrays.isEmpty()) {
+				Object[] array = arrays.peek();
+				int position = positions.pop();
+				if (position >= array.length) {
+					arrays.pop();
+					continue;
+				}
+				positions.push(position + 2);
+				if (array[position] != null) {
+					nextKey = array[position];
+					return;
+				}
+				push((Node) array[position + 1]);
+			}
+		}
+	}
+}
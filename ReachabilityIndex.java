@@ -0,0 +1,373 @@
+import java.nio.IntBuffer;
+import java.util.Arrays;
+
+
+/**
+ * Filename:   ReachabilityIndex.java
+ * Project:    p4
+ * Authors:    Aron Denenberg
+ *
+ * Answers "does course Y require course X, directly or through other prerequisites" without walking the
+ * graph each time. The index is built on the condensation of the graph, where every group of courses in
+ * a cycle becomes one component, and combines three kinds of labels:
+ *
+ *   1. Each component's number in topological order. A prerequisite always has a lower number, so a
+ *      higher or equal number rules a pair out at once.
+ *   2. Interval labels from one depth first walk. Each component gets its post order number, the range
+ *      of post order numbers of its walk subtree (any number in it is reachable) and the lowest post
+ *      order number reachable through any edge (any number outside [lowest, own] is not reachable).
+ *   3. The full set of reachable components, stored as sorted chunks of 64 bits, for as many components
+ *      as the memory budget allows. The budget goes to the components whose range [lowest, own] is widest
+ *      and not covered by their walk subtree, since those are the ones the labels settle least often.
+ *
+ * Most queries are answered by 1 or 2 in O(1), the rest by a binary search in a set. Only when neither
+ * the labels nor a set settle it is a walk needed, and the walk stops at every component that has a set
+ * or that the labels rule out.
+ *
+ * Bugs or other notes: the index is built from the graph as it is at that time and isn't updated when the
+ * graph changes. Any number of threads can ask at once. Each thread that needs a walk gets its own
+ * scratch arrays the first time, two ints per component.
+ *
+ * @param <T> type of a vertex
+ */
+public class ReachabilityIndex<T> {
+
+	// field variables
+	private TopologicalSorter<T> sorter; // ids of the vertices
+	private int[] components; // component of each id
+	private int componentCount; // number of components
+	private int[] offsets; // start of each component's prerequisite components in targets
+	private int[] targets; // prerequisite components of every component one after another
+	private boolean[] cyclic; // indicator as to whether each component has a cycle
+	private int[] post; // post order number of each component
+	private int[] treeLow; // lowest post order number in each component's walk subtree
+	private int[] low; // lowest post order number reachable from each component
+	private int[][] chunkKeys; // which chunks of 64 components each set has, null for components without a set
+	private long[][] chunkBits; // bits of each chunk in chunkKeys
+	private int setCount; // number of components with a set
+	private long memoryBytes; // estimated size of the index
+	private long buildMillis; // time taken to build the index
+	private ThreadLocal<Walk> walks; // scratch arrays for walks, one set per thread asking
+
+	/**
+	 * Constructor for the class. Builds the index
+	 *
+	 * @param graph is the graph to index
+	 * @param memoryBudget is roughly the most bytes the sets of reachable components may take, 0 for no sets
+	 */
+	public ReachabilityIndex(GraphADT<T> graph, long memoryBudget) {
+		long start = System.nanoTime();
+		sorter = new TopologicalSorter<T>(graph);
+		components = sorter.components();
+		CompactGraphImpl<Integer> condensation = sorter.getCondensation();
+		componentCount = condensation.order();
+		offsets = condensation.offsets();
+		targets = condensation.targets();
+
+		// a component has a cycle when it has more than one vertex or a vertex with an edge to itself
+		cyclic = new boolean[componentCount];
+		int[] members = new int[componentCount];
+		for (int id = 0; id < components.length; id++) {
+			if (++members[components[id]] > 1) {
+				cyclic[components[id]] = true;
+			}
+		}
+		IntBuffer vertexOffsets = sorter.offsets();
+		IntBuffer vertexTargets = sorter.targets();
+		for (int id = 0; id < components.length; id++) {
+			for (int i = vertexOffsets.get(id); i < vertexOffsets.get(id + 1); i++) {
+				if (vertexTargets.get(i) == id) {
+					cyclic[components[id]] = true;
+				}
+			}
+		}
+
+		labelIntervals();
+		buildSets(memoryBudget);
+		walks = ThreadLocal.withInitial(() -> new Walk(componentCount));
+		memoryBytes += 4L * (components.length + 7L * componentCount + targets.length) + componentCount;
+		buildMillis = (System.nanoTime() - start) / 1000000;
+	}
+
+	/**
+	 * Checks whether a course requires another, directly or through other prerequisites
+	 *
+	 * @param prerequisite is the course that may be required
+	 * @param course is the course that may require it
+	 * @return true if course requires prerequisite, false otherwise or if either isn't in the graph. A course
+	 *         only requires itself when it is part of a cycle
+	 */
+	public boolean isPrerequisite(T prerequisite, T course) {
+		int prerequisiteId = sorter.idOf(prerequisite);
+		int courseId = sorter.idOf(course);
+		if (prerequisiteId < 0 || courseId < 0) {
+			return false;
+		}
+		int target = components[prerequisiteId];
+		int source = components[courseId];
+		if (target == source) {
+			return cyclic[source];
+		}
+		if (target > source || post[target] < low[source] || post[target] > post[source]) {
+			return false;
+		}
+		if (post[target] >= treeLow[source]) {
+			return true;
+		}
+		if (chunkKeys[source] != null) {
+			return inSet(source, target);
+		}
+		return walk(source, target);
+	}
+
+	/**
+	 * Gets how long building the index took
+	 *
+	 * @return build time in milliseconds
+	 */
+	public long getBuildMillis() {
+		return buildMillis;
+	}
+
+	/**
+	 * Gets an estimate of the memory the index uses, not counting the vertices themselves
+	 *
+	 * @return estimated size in bytes
+	 */
+	public long getMemoryBytes() {
+		return memoryBytes;
+	}
+
+	/**
+	 * Gets the number of components whose full set of reachable components fit in the memory budget
+	 *
+	 * @return number of components with a set
+	 */
+	public int getSetCount() {
+		return setCount;
+	}
+
+	/**
+	 * Gets the number of components, which is the number of vertices when the graph has no cycles
+	 *
+	 * @return number of components
+	 */
+	public int getComponentCount() {
+		return componentCount;
+	}
+
+	/**
+	 * Gives every component its post order number, walk subtree range and lowest reachable post order number
+	 * with one depth first walk using an explicit stack
+	 */
+	private void labelIntervals() {
+		post = new int[componentCount];
+		treeLow = new int[componentCount];
+		low = new int[componentCount];
+		boolean[] visited = new boolean[componentCount];
+		int[] walkStack = new int[componentCount];
+		int[] next = new int[componentCount];
+		int counter = 0;
+
+		// start from the highest numbered components, which nothing depends on, so walk trees are large
+		for (int root = componentCount - 1; root >= 0; root--) {
+			if (visited[root]) {
+				continue;
+			}
+			int top = 0;
+			walkStack[top++] = root;
+			visited[root] = true;
+			next[root] = offsets[root];
+			treeLow[root] = Integer.MAX_VALUE;
+			while (top > 0) {
+				int current = walkStack[top - 1];
+				if (next[current] < offsets[current + 1]) {
+					int adjacent = targets[next[current]++];
+					if (!visited[adjacent]) {
+						visited[adjacent] = true;
+						next[adjacent] = offsets[adjacent];
+						treeLow[adjacent] = Integer.MAX_VALUE;
+						walkStack[top++] = adjacent;
+					}
+				} else {
+					// every prerequisite is finished, so their labels are final
+					top--;
+					post[current] = counter++;
+					treeLow[current] = Math.min(treeLow[current], post[current]);
+					low[current] = post[current];
+					for (int i = offsets[current]; i < offsets[current + 1]; i++) {
+						low[current] = Math.min(low[current], low[targets[i]]);
+					}
+					if (top > 0) {
+						int parent = walkStack[top - 1];
+						treeLow[parent] = Math.min(treeLow[parent], treeLow[current]);
+					}
+				}
+			}
+		}
+	}
+
+	/**
+	 * Picks the components to give sets to, widest range of reachable post order numbers first, until the
+	 * memory budget is used up, and builds their sets from the lowest numbered component up. Each set is
+	 * the union of the sets of the component's prerequisites, walking through prerequisites without a set
+	 *
+	 * @param memoryBudget is roughly the most bytes the sets may take
+	 */
+	private void buildSets(long memoryBudget) {
+		chunkKeys = new int[componentCount][];
+		chunkBits = new long[componentCount][];
+		long[] scratch = new long[(componentCount + 63) / 64]; // union being built, one bit per component
+		int[] touched = new int[scratch.length]; // chunks of scratch that are in use
+
+		// components whose walk subtree covers their whole range are already answered by the labels
+		long[] candidates = new long[componentCount]; // range width in the high half, component in the low half
+		int candidateCount = 0;
+		for (int component = 0; component < componentCount; component++) {
+			if (treeLow[component] > low[component]) {
+				candidates[candidateCount++] = (long) (post[component] - low[component] + 1) << 32 | component;
+			}
+		}
+		Arrays.sort(candidates, 0, candidateCount);
+
+		// every reachable component has a post order number in the range and a lower number than the
+		// component, so a set can't have more chunks than either allows. Sets are usually much smaller than
+		// that, so whatever the chosen sets leave of the budget is handed out again to the next widest
+		boolean[] chosen = new boolean[componentCount];
+		int[] marked = new int[componentCount]; // component + 1 for prerequisites already in its union
+		int[] walkStack = new int[componentCount];
+		long used = 0;
+		boolean choseAny = true;
+		while (choseAny) {
+			choseAny = false;
+			long planned = used;
+			for (int i = candidateCount - 1; i >= 0; i--) {
+				int component = (int) candidates[i];
+				int width = (int) (candidates[i] >>> 32);
+				long bytes = 12L * Math.min(width, (component >>> 6) + 1) + 32;
+				if (!chosen[component] && planned + bytes <= memoryBudget) {
+					chosen[component] = true;
+					choseAny = true;
+					planned += bytes;
+				}
+			}
+
+			for (int component = 0; component < componentCount; component++) {
+				if (!chosen[component] || chunkKeys[component] != null) {
+					continue;
+				}
+				int touchedCount = 0;
+				int top = 0;
+				walkStack[top++] = component;
+				while (top > 0) {
+					int current = walkStack[--top];
+					for (int i = offsets[current]; i < offsets[current + 1]; i++) {
+						int adjacent = targets[i];
+						if (marked[adjacent] == component + 1) {
+							continue;
+						}
+						marked[adjacent] = component + 1;
+						if (scratch[adjacent >>> 6] == 0) {
+							touched[touchedCount++] = adjacent >>> 6;
+						}
+						scratch[adjacent >>> 6] |= 1L << adjacent;
+						int[] keys = chunkKeys[adjacent];
+						if (keys == null) {
+							walkStack[top++] = adjacent; // no set yet, so take its prerequisites one by one
+							continue;
+						}
+						long[] bits = chunkBits[adjacent];
+						for (int j = 0; j < keys.length; j++) {
+							if (scratch[keys[j]] == 0) {
+								touched[touchedCount++] = keys[j];
+							}
+							scratch[keys[j]] |= bits[j];
+						}
+					}
+				}
+				Arrays.sort(touched, 0, touchedCount);
+				int[] keys = Arrays.copyOf(touched, touchedCount);
+				long[] bits = new long[touchedCount];
+				for (int j = 0; j < touchedCount; j++) {
+					bits[j] = scratch[keys[j]];
+					scratch[keys[j]] = 0;
+				}
+				chunkKeys[component] = keys;
+				chunkBits[component] = bits;
+				used += 12L * touchedCount + 32;
+				setCount++;
+			}
+		}
+		memoryBytes += used + 8L * scratch.length;
+	}
+
+	/**
+	 * Checks a component's set of reachable components for another component
+	 */
+	private boolean inSet(int source, int target) {
+		int chunk = Arrays.binarySearch(chunkKeys[source], target >>> 6);
+		return chunk >= 0 && (chunkBits[source][chunk] & (1L << target)) != 0;
+	}
+
+	/**
+	 * Walks from a component towards another, skipping components the labels rule out and answering from
+	 * the set of any component that has one instead of walking past it
+	 */
+	private boolean walk(int source, int target) {
+		Walk scratch = walks.get();
+		int[] seen = scratch.seen;
+		int[] stack = scratch.stack;
+		int query = ++scratch.query;
+		if (query == 0) {
+			Arrays.fill(seen, 0); // query numbers wrapped around
+			query = scratch.query = 1;
+		}
+		int top = 0;
+		stack[top++] = source;
+		seen[source] = query;
+		while (top > 0) {
+			int current = stack[--top];
+			for (int i = offsets[current]; i < offsets[current + 1]; i++) {
+				int adjacent = targets[i];
+				if (adjacent == target) {
+					return true;
+				}
+				if (seen[adjacent] == query || adjacent < target || post[target] < low[adjacent]
+						|| post[target] > post[adjacent]) {
+					continue;
+				}
+				seen[adjacent] = query;
+				if (post[target] >= treeLow[adjacent]) {
+					return true;
+				}
+				if (chunkKeys[adjacent] != null) {
+					if (inSet(adjacent, target)) {
+						return true;
+					}
+					continue;
+				}
+				stack[top++] = adjacent;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Scratch arrays one thread uses for its walks
+	 */
+	private static class Walk {
+
+		// field variables
+		private int[] seen; // query number each component was last walked in
+		private int[] stack; // components waiting to be walked
+		private int query; // number of the current walk
+
+		/**
+		 * Constructor for the class
+		 */
+		Walk(int componentCount) {
+			seen = new int[componentCount];
+			stack = new int[componentCount];
+		}
+	}
+}
@@ -0,0 +1,237 @@
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+import javax.management.ObjectName;
+
+
+/**
+ * Filename:   SchedulerMetrics.java
+ * Project:    p4
+ * Authors:    Aron Denenberg
+ *
+ * Counts and times the main course scheduler operations, and counts the vertices visited and edges
+ * scanned by graph traversals. Each operation has a LatencyHistogram so tail latencies can be read as
+ * well as the mean. The metrics are shared by the whole program, read through get(), and can be
+ * watched over JMX with registerMBean() or handed to a Reporter at a fixed rate with startReporting().
+ *
+ * Recording is off unless the system property scheduler.metrics is true or setEnabled(true) is called.
+ * While off, start() and the other record methods only read one volatile flag, so the instrumented code
+ * costs next to nothing. Instrumented code uses the pattern
+ *
+ *   long start = SchedulerMetrics.start();
+ *   ... operation ...
+ *   SchedulerMetrics.stop(SchedulerMetrics.Operation.SUBJECT_ORDER, start);
+ *
+ * Bugs or other notes: an operation that is running when recording is switched on isn't timed
+ */
+public class SchedulerMetrics implements SchedulerMetricsMBean {
+
+	/**
+	 * Operations that are timed
+	 */
+	public enum Operation {
+		CREATE_ENTITY, CONSTRUCT_GRAPH, CAN_COMPLETE, SUBJECT_ORDER, MINIMAL_COMPLETION
+	}
+
+	/**
+	 * Receives the metrics at a fixed rate once startReporting() is called, for example to write them to a
+	 * log or send them to a monitoring system
+	 */
+	public interface Reporter {
+		void report(SchedulerMetrics metrics);
+	}
+
+	// the one set of metrics for the program
+	private static final SchedulerMetrics METRICS = new SchedulerMetrics();
+
+	// name the metrics are registered under with JMX
+	public static final String MBEAN_NAME = "p4:type=SchedulerMetrics";
+
+	// field variables
+	private volatile boolean enabled; // indicator as to whether metrics are being recorded
+	private LatencyHistogram[] latencies; // duration of each operation, indexed by ordinal
+	private LongAdder verticesVisited; // vertices visited by traversals
+	private LongAdder edgesScanned; // edges scanned by traversals
+	private ScheduledExecutorService reporting; // thread running the reporter, null when not reporting
+
+	/**
+	 * Constructor for the class. Private since there is only one set of metrics
+	 */
+	private SchedulerMetrics() {
+		enabled = Boolean.getBoolean("scheduler.metrics");
+		latencies = new LatencyHistogram[Operation.values().length];
+		for (int i = 0; i < latencies.length; i++) {
+			latencies[i] = new LatencyHistogram();
+		}
+		verticesVisited = new LongAdder();
+		edgesScanned = new LongAdder();
+	}
+
+	/**
+	 * Gets the metrics for the program
+	 *
+	 * @return the one set of metrics
+	 */
+	public static SchedulerMetrics get() {
+		return METRICS;
+	}
+
+	/**
+	 * Marks the start of an operation
+	 *
+	 * @return time to pass to stop(), 0 when recording is off
+	 */
+	public static long start() {
+		return METRICS.enabled ? System.nanoTime() : 0;
+	}
+
+	/**
+	 * Marks the end of an operation, recording its duration
+	 *
+	 * @param operation that finished
+	 * @param start is the value start() returned when the operation began
+	 */
+	public static void stop(Operation operation, long start) {
+		if (start != 0 && METRICS.enabled) {
+			METRICS.latencies[operation.ordinal()].record(System.nanoTime() - start);
+		}
+	}
+
+	/**
+	 * Records the work done by one traversal. Traversals should count in local variables and call this once
+	 * at the end, not once per vertex
+	 *
+	 * @param vertices is the number of vertices visited
+	 * @param edges is the number of edges scanned
+	 */
+	public static void traversed(long vertices, long edges) {
+		if (METRICS.enabled) {
+			METRICS.verticesVisited.add(vertices);
+			METRICS.edgesScanned.add(edges);
+		}
+	}
+
+	/**
+	 * Registers the metrics with the platform MBean server under MBEAN_NAME. Registering again does nothing
+	 *
+	 * @throws Exception if the MBean server refuses the registration
+	 */
+	public static void registerMBean() throws Exception {
+		ObjectName name = new ObjectName(MBEAN_NAME);
+		if (!ManagementFactory.getPlatformMBeanServer().isRegistered(name)) {
+			ManagementFactory.getPlatformMBeanServer().registerMBean(METRICS, name);
+		}
+	}
+
+	/**
+	 * Starts handing the metrics to a reporter at a fixed rate on a background thread, replacing any
+	 * reporter already running
+	 *
+	 * @param reporter receives the metrics
+	 * @param periodMillis is the time between reports
+	 */
+	public synchronized void startReporting(final Reporter reporter, long periodMillis) {
+		stopReporting();
+		reporting = Executors.newSingleThreadScheduledExecutor(task -> {
+			Thread thread = new Thread(task, "scheduler-metrics-reporter");
+			thread.setDaemon(true);
+			return thread;
+		});
+		reporting.scheduleAtFixedRate(() -> reporter.report(this), periodMillis, periodMillis,
+				TimeUnit.MILLISECONDS);
+	}
+
+	/**
+	 * Stops the reporter started by startReporting, if any
+	 */
+	public synchronized void stopReporting() {
+		if (reporting != null) {
+			reporting.shutdownNow();
+			reporting = null;
+		}
+	}
+
+	/**
+	 * Gets the histogram of an operation's durations
+	 *
+	 * @param operation to get the durations of
+	 * @return histogram of the operation's durations in nanoseconds
+	 */
+	public LatencyHistogram getLatency(Operation operation) {
+		return latencies[operation.ordinal()];
+	}
+
+	@Override
+	public boolean isEnabled() {
+		return enabled;
+	}
+
+	@Override
+	public void setEnabled(boolean enabled) {
+		this.enabled = enabled;
+	}
+
+	@Override
+	public String[] getOperationNames() {
+		Operation[] operations = Operation.values();
+		String[] names = new String[operations.length];
+		for (int i = 0; i < operations.length; i++) {
+			names[i] = operations[i].name();
+		}
+		return names;
+	}
+
+	/**
+	 * @throws IllegalArgumentException if no operation has the name
+	 */
+	@Override
+	public long getCount(String operation) {
+		return getLatency(Operation.valueOf(operation)).getCount();
+	}
+
+	/**
+	 * @throws IllegalArgumentException if no operation has the name
+	 */
+	@Override
+	public double getPercentileMillis(String operation, double percentile) {
+		return getLatency(Operation.valueOf(operation)).getPercentile(percentile) / 1e6;
+	}
+
+	@Override
+	public long getVerticesVisited() {
+		return verticesVisited.sum();
+	}
+
+	@Override
+	public long getEdgesScanned() {
+		return edgesScanned.sum();
+	}
+
+	@Override
+	public String report() {
+		StringBuilder report = new StringBuilder();
+		report.append("operation\tcount\tmean ms\tp50 ms\tp99 ms\tp999 ms\tmax ms\n");
+		for (Operation operation : Operation.values()) {
+			LatencyHistogram latency = getLatency(operation);
+			report.append(operation).append('\t').append(latency.getCount())
+					.append(String.format("\t%.3f\t%.3f\t%.3f\t%.3f\t%.3f%n", latency.getMean() / 1e6,
+							latency.getPercentile(50) / 1e6, latency.getPercentile(99) / 1e6,
+							latency.getPercentile(99.9) / 1e6, latency.getMax() / 1e6));
+		}
+		report.append("vertices visited\t").append(getVerticesVisited()).append('\n');
+		report.append("edges scanned\t").append(getEdgesScanned()).append('\n');
+		return report.toString();
+	}
+
+	@Override
+	public void reset() {
+		for (LatencyHistogram latency : latencies) {
+			latency.reset();
+		}
+		verticesVisited.reset();
+		edgesScanned.reset();
+	}
+}
@@ -0,0 +1,37 @@
+/**
+ * Filename:   SchedulerMetricsMBean.java
+ * Project:    p4
+ * Authors:    Aron Denenberg
+ *
+ * Management interface of SchedulerMetrics, so the metrics can be read and switched on or off from a
+ * JMX console such as jconsole while the program runs
+ */
+public interface SchedulerMetricsMBean {
+
+	/** Returns whether metrics are being recorded */
+	boolean isEnabled();
+
+	/** Switches recording of metrics on or off */
+	void setEnabled(boolean enabled);
+
+	/** Returns the names of the operations that are timed */
+	String[] getOperationNames();
+
+	/** Returns the number of times an operation has finished */
+	long getCount(String operation);
+
+	/** Returns the duration in milliseconds that the given percentage of an operation's runs took at most */
+	double getPercentileMillis(String operation, double percentile);
+
+	/** Returns the number of vertices visited by traversals */
+	long getVerticesVisited();
+
+	/** Returns the number of edges scanned by traversals */
+	long getEdgesScanned();
+
+	/** Returns every metric as text, one operation per line */
+	String report();
+
+	/** Forgets every metric recorded */
+	void reset();
+}
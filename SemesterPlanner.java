@@ -0,0 +1,139 @@
+import java.nio.IntBuffer;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.PriorityQueue;
+
+
+/**
+ * Filename:   SemesterPlanner.java
+ * Project:    p4
+ * Authors:    Aron Denenberg
+ *
+ * Splits the courses of a prerequisite graph into semesters with at most a given number of courses each,
+ * where every course is taken in a later semester than all of its prerequisites. Each course is given a
+ * priority equal to the length of the longest chain of courses that depend on it, so courses on the
+ * critical path are taken as early as possible. Semesters are then filled one at a time from the courses
+ * whose prerequisites are all done, highest priority first (list scheduling). Planning is
+ * O((V+E) log V) on the int arrays of a TopologicalSorter.
+ *
+ * Bugs or other notes: list scheduling is a heuristic, with a load limit the plan isn't guaranteed to
+ * use the fewest possible semesters. Without a limit it always does.
+ *
+ * @param <T> type of a vertex
+ */
+public class SemesterPlanner<T> {
+
+	// field variables
+	private TopologicalSorter<T> sorter; // int arrays of the graph being planned
+	private int[] chainLength; // longest chain of courses that depend on each id, counting the id itself
+
+	/**
+	 * Constructor for the class. Computes the priority of every course, so one planner can quickly make plans
+	 * for many different loads and sets of completed courses
+	 *
+	 * @param graph is the graph of courses and their prerequisites
+	 * @throws Exception when courses can't be completed in any order
+	 */
+	public SemesterPlanner(GraphADT<T> graph) throws Exception {
+		sorter = new TopologicalSorter<T>(graph);
+		int[] peeled = sorter.peel();
+		if (peeled.length < sorter.vertexCount()) {
+			throw new Exception("Can't complete all courses!");
+		}
+
+		// walk the courses from the last to be taken to the first, so every course that depends on a course
+		// has its chain length before the course itself
+		int[] incomingOffsets = sorter.incomingOffsets();
+		int[] incoming = sorter.incoming();
+		chainLength = new int[peeled.length];
+		for (int i = peeled.length - 1; i >= 0; i--) {
+			int id = peeled[i];
+			int longest = 0;
+			for (int j = incomingOffsets[id]; j < incomingOffsets[id + 1]; j++) {
+				longest = Math.max(longest, chainLength[incoming[j]]);
+			}
+			chainLength[id] = longest + 1;
+		}
+	}
+
+	/**
+	 * Plans every course into semesters
+	 *
+	 * @param maxLoad is the most courses that can be taken in one semester
+	 * @return list of the courses to take in each semester, in order
+	 */
+	public List<List<T>> plan(int maxLoad) {
+		return plan(maxLoad, Collections.<T>emptySet());
+	}
+
+	/**
+	 * Plans the courses that haven't been completed yet into semesters
+	 *
+	 * @param maxLoad is the most courses that can be taken in one semester
+	 * @param completed are the courses that have already been taken and don't need to be planned
+	 * @return list of the courses to take in each semester, in order
+	 * @throws IllegalArgumentException if maxLoad is less than 1
+	 */
+	public List<List<T>> plan(int maxLoad, Collection<T> completed) {
+		if (maxLoad < 1) {
+			throw new IllegalArgumentException("maxLoad must be at least 1: " + maxLoad);
+		}
+		int vertexCount = sorter.vertexCount();
+		IntBuffer offsets = sorter.offsets();
+		int[] incomingOffsets = sorter.incomingOffsets();
+		int[] incoming = sorter.incoming();
+
+		boolean[] done = new boolean[vertexCount];
+		for (T course : completed) {
+			int id = sorter.idOf(course);
+			if (id >= 0) {
+				done[id] = true;
+			}
+		}
+
+		// prerequisites left to take for each course, and the courses with none left ordered by priority
+		int[] remaining = new int[vertexCount];
+		PriorityQueue<Integer> ready = new PriorityQueue<Integer>(Math.max(1, vertexCount),
+				(id1, id2) -> chainLength[id1] != chainLength[id2] ? chainLength[id2] - chainLength[id1] : id1 - id2);
+		for (int id = 0; id < vertexCount; id++) {
+			remaining[id] = offsets.get(id + 1) - offsets.get(id);
+		}
+		for (int id = 0; id < vertexCount; id++) {
+			if (done[id]) {
+				for (int j = incomingOffsets[id]; j < incomingOffsets[id + 1]; j++) {
+					remaining[incoming[j]]--;
+				}
+			}
+		}
+		for (int id = 0; id < vertexCount; id++) {
+			if (!done[id] && remaining[id] == 0) {
+				ready.add(id);
+			}
+		}
+
+		// fill each semester from the courses ready at its start, then release the courses they unlock
+		List<List<T>> semesters = new ArrayList<List<T>>();
+		int[] semester = new int[Math.min(maxLoad, Math.max(1, vertexCount))]; // ids taken in the current semester
+		while (!ready.isEmpty()) {
+			int load = 0;
+			while (load < semester.length && !ready.isEmpty()) {
+				semester[load++] = ready.poll();
+			}
+			List<T> courses = new ArrayList<T>(load);
+			for (int i = 0; i < load; i++) {
+				int id = semester[i];
+				courses.add(sorter.vertexOf(id));
+				for (int j = incomingOffsets[id]; j < incomingOffsets[id + 1]; j++) {
+					int dependent = incoming[j];
+					if (!done[dependent] && --remaining[dependent] == 0) {
+						ready.add(dependent);
+					}
+				}
+			}
+			semesters.add(courses);
+		}
+		return semesters;
+	}
+}
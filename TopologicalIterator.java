@@ -0,0 +1,105 @@
+import java.nio.IntBuffer;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+
+/**
+ * Filename:   TopologicalIterator.java
+ * Project:    p4
+ * Authors:    Aron Denenberg
+ *
+ * Iterates over the vertices of a graph in topological order, every vertex after the vertices it has
+ * edges to, working out each vertex only when it is asked for. Each id keeps a count of the vertices it
+ * has edges to that have been returned, and a vertex is ready once that count reaches its number of
+ * edges (Kahn's algorithm run on demand). Vertices with no edges at all are found by a cursor that moves
+ * forward through the ids as more vertices are needed, so nothing is scanned ahead of time and stopping
+ * early saves the rest of the work. Only int arrays are kept, never a list of the vertices.
+ *
+ * When a cycle stops any more vertices from becoming ready, hasNext() is still true as vertices remain,
+ * but next() throws an IllegalStateException. Every vertex returned before that point is valid.
+ *
+ * Bugs or other notes: the graph is copied when the iterator is made, changes after that aren't seen
+ *
+ * @param <T> type of a vertex
+ */
+public class TopologicalIterator<T> implements Iterator<T> {
+
+	// field variables
+	private TopologicalSorter<T> sorter; // ids and int arrays of the graph
+	private IntBuffer offsets; // start of each id's edges in the sorter's targets
+	private int[] incomingOffsets; // start of each id's incoming edges in incoming
+	private int[] incoming; // ids with an edge to each id, one id after another
+	private int[] satisfied; // number of each id's edges to vertices already returned
+	private int[] ready; // queue of ids whose edges are all to returned vertices
+	private int head; // next id in ready to return
+	private int tail; // where the next ready id is added
+	private int cursor; // next id to check for having no edges at all
+	private int returned; // number of vertices returned
+
+	/**
+	 * Constructor for the class. Copies the graph into int arrays but doesn't order anything yet
+	 *
+	 * @param graph is the graph to iterate over
+	 */
+	public TopologicalIterator(GraphADT<T> graph) {
+		this(new TopologicalSorter<T>(graph));
+	}
+
+	/**
+	 * Constructor for the class, sharing the arrays a sorter has already built
+	 *
+	 * @param sorter has the graph to iterate over
+	 */
+	TopologicalIterator(TopologicalSorter<T> sorter) {
+		this.sorter = sorter;
+		offsets = sorter.offsets();
+		incomingOffsets = sorter.incomingOffsets();
+		incoming = sorter.incoming();
+		satisfied = new int[sorter.vertexCount()];
+		ready = new int[sorter.vertexCount()];
+	}
+
+	/**
+	 * Indicates whether any vertex hasn't been returned yet
+	 *
+	 * @return true if there are vertices left, even if a cycle stops them being returned
+	 */
+	@Override
+	public boolean hasNext() {
+		return returned < satisfied.length;
+	}
+
+	/**
+	 * Returns the next vertex in topological order
+	 *
+	 * @return a vertex all of whose adjacent vertices have already been returned
+	 * @throws NoSuchElementException if every vertex has been returned
+	 * @throws IllegalStateException if the vertices left can't be returned because of a cycle
+	 */
+	@Override
+	public T next() {
+		if (!hasNext()) {
+			throw new NoSuchElementException();
+		}
+		if (head == tail) {
+			// nothing unlocked is waiting, so find the next vertex that never needed anything
+			while (cursor < satisfied.length && offsets.get(cursor + 1) > offsets.get(cursor)) {
+				cursor++;
+			}
+			if (cursor == satisfied.length) {
+				throw new IllegalStateException("Can't complete all courses! " + (satisfied.length - returned)
+						+ " courses are blocked by a cycle");
+			}
+			ready[tail++] = cursor++;
+		}
+		int id = ready[head++];
+		for (int i = incomingOffsets[id]; i < incomingOffsets[id + 1]; i++) {
+			int dependent = incoming[i];
+			if (++satisfied[dependent] == offsets.get(dependent + 1) - offsets.get(dependent)) {
+				ready[tail++] = dependent;
+			}
+		}
+		returned++;
+		return sorter.vertexOf(id);
+	}
+}
@@ -0,0 +1,610 @@
+import java.nio.IntBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+
+/**
+ * Filename:   TopologicalSorter.java
+ * Project:    p4
+ * Authors:    Aron Denenberg
+ *
+ * Orders the vertices of a graph so that every vertex comes after all of the vertices it has edges to,
+ * which for a course graph means every course comes after its prerequisites. The graph is copied into
+ * int adjacency arrays when the sorter is created and walked with an explicit stack depth first search
+ * that marks vertices white (not visited), grey (on the stack) or black (finished). A grey vertex that
+ * is reached again means there is a cycle. Every walk is O(V+E) and no recursion is used, so long
+ * prerequisite chains can't overflow the thread stack.
+ *
+ * Bugs or other notes: the sorter works on a copy of the graph taken when it is created, later changes
+ * to the graph are not seen. Edges to vertices that are no longer in the graph are ignored.
+ *
+ * @param <T> type of a vertex
+ */
+public class TopologicalSorter<T> {
+
+	// colours a vertex can be marked with during a walk
+	private static final byte WHITE = 0; // not yet visited
+	private static final byte GREY = 1; // visited and still on the stack
+	private static final byte BLACK = 2; // visited along with everything it has edges to
+
+	// largest number of longs a single block of reachability bits may use when counting every vertex at once
+	private static final int BLOCK_LONGS = 1 << 21;
+
+	// field variables
+	private IndexedGraph<T> indexed; // graph being sorted when its arrays can be used directly, otherwise null
+	private Map<T, Integer> ids; // id of each vertex when the graph was copied
+	private List<T> vertices; // vertex for each id when the graph was copied
+	private int vertexCount; // number of vertices in the graph
+	private IntBuffer offsets; // start of each vertex's adjacent ids in targets, plus one extra entry for the end
+	private IntBuffer targets; // adjacent ids of every vertex laid out one after another
+	private int[] stack; // ids currently being processed during a walk
+	private int[] next; // position in targets of the next edge to follow for each id during a walk
+	private int[] order; // ids in sorted order once the whole graph has been sorted
+	private boolean sorted; // indicator as to whether the whole graph has been sorted yet
+	private int[] incomingOffsets; // start of each id's incoming ids in incoming once built, plus one extra entry
+	private int[] incoming; // ids with an edge to each id laid out one after another once built
+	private int[] peeled; // ids that can't reach a cycle in peeling order once found
+	private int[] components; // strongly connected component of each id once components have been found
+	private int componentCount; // number of strongly connected components
+
+	/**
+	 * Constructor for the class. Copies the graph into int adjacency arrays, or reads the adjacency buffers
+	 * of an IndexedGraph such as CompactGraphImpl or MappedCatalogGraph in place
+	 *
+	 * @param graph is the graph to sort
+	 */
+	public TopologicalSorter(GraphADT<T> graph) {
+		if (graph instanceof IndexedGraph) {
+			indexed = (IndexedGraph<T>) graph;
+			offsets = indexed.offsetBuffer(); // freezes a CompactGraphImpl, so read before the vertex count
+			targets = indexed.targetBuffer();
+			vertexCount = offsets.limit() - 1;
+		} else if (graph instanceof ConcurrentGraphImpl) {
+			copy(((ConcurrentGraphImpl<T>) graph).snapshot()); // copy one consistent version of the graph
+		} else {
+			copy(graph);
+		}
+		stack = new int[vertexCount];
+		next = new int[vertexCount];
+	}
+
+	/**
+	 * Gets an order of all the vertices where every vertex comes after the vertices it has edges to
+	 *
+	 * @return list of all vertices in sorted order, null if the graph has a cycle
+	 */
+	public List<T> getOrder() {
+		sort();
+		if (order == null) {
+			return null;
+		}
+		List<T> orderedList = new ArrayList<T>(order.length);
+		for (int id : order) {
+			orderedList.add(vertexOf(id));
+		}
+		return orderedList;
+	}
+
+	/**
+	 * Indicates whether the graph can be sorted
+	 *
+	 * @return true if the graph has no cycles, false otherwise
+	 */
+	public boolean isAcyclic() {
+		sort();
+		return order != null;
+	}
+
+	/**
+	 * Counts the vertices that can be reached from the given vertex, not counting the vertex itself. For
+	 * a course this is the number of courses that have to be taken before it
+	 *
+	 * @param vertex to count from
+	 * @return number of vertices reachable from the vertex, -1 if the vertex isn't in the graph or a
+	 *         cycle can be reached from it
+	 */
+	public int countReachable(T vertex) {
+		int id = idOf(vertex);
+		if (id < 0) {
+			return -1;
+		}
+		int count = visit(id, new byte[vertexCount], new int[vertexCount], 0);
+		return count < 0 ? -1 : count - 1;
+	}
+
+	/**
+	 * Gets an order of every vertex that can't reach a cycle, where every vertex comes after the vertices it
+	 * has edges to. For a course graph these are the courses that can still be completed when others can't
+	 *
+	 * @return list of the vertices that can't reach a cycle in sorted order, every vertex if there is no cycle
+	 */
+	public List<T> getAcyclicOrder() {
+		List<T> orderedList = new ArrayList<T>();
+		for (int id : peel()) {
+			orderedList.add(vertexOf(id));
+		}
+		return orderedList;
+	}
+
+	/**
+	 * Finds every cycle in the graph in one pass. Each cycle is reported as a strongly connected component,
+	 * the largest group of vertices that can all reach each other, so overlapping cycles are reported once
+	 *
+	 * @return list of the vertices of each component that has a cycle, empty if the graph has no cycles
+	 */
+	public List<List<T>> getCycles() {
+		findComponents();
+		List<List<T>> members = getComponentMembers();
+		boolean[] cyclic = new boolean[componentCount];
+		for (int id = 0; id < vertexCount; id++) {
+			for (int i = offsets.get(id); i < offsets.get(id + 1); i++) {
+				// an edge inside a component is part of a cycle, including an edge from a vertex to itself
+				if (components[targets.get(i)] == components[id]) {
+					cyclic[components[id]] = true;
+				}
+			}
+		}
+		List<List<T>> cycles = new ArrayList<List<T>>();
+		for (int component = 0; component < componentCount; component++) {
+			if (cyclic[component]) {
+				cycles.add(members.get(component));
+			}
+		}
+		return cycles;
+	}
+
+	/**
+	 * Builds the condensation of the graph, which has one vertex for each strongly connected component and an
+	 * edge between two components when any of their vertices have an edge between them. The condensation
+	 * never has a cycle, and its vertices are numbered so every component comes after the components it has
+	 * edges to
+	 *
+	 * @return graph whose vertices are component numbers from 0, see getComponent for their vertices
+	 */
+	public CompactGraphImpl<Integer> getCondensation() {
+		findComponents();
+		CompactGraphImpl<Integer> condensation = new CompactGraphImpl<Integer>();
+		for (int component = 0; component < componentCount; component++) {
+			condensation.addVertex(component);
+		}
+		for (int id = 0; id < vertexCount; id++) {
+			for (int i = offsets.get(id); i < offsets.get(id + 1); i++) {
+				if (components[targets.get(i)] != components[id]) {
+					condensation.addEdge(components[id], components[targets.get(i)]);
+				}
+			}
+		}
+		condensation.freeze();
+		return condensation;
+	}
+
+	/**
+	 * Gets the vertices of a strongly connected component
+	 *
+	 * @param component number, as used by getCondensation
+	 * @return list of the vertices in the component
+	 */
+	public List<T> getComponent(int component) {
+		findComponents();
+		List<T> members = new ArrayList<T>();
+		for (int id = 0; id < vertexCount; id++) {
+			if (components[id] == component) {
+				members.add(vertexOf(id));
+			}
+		}
+		return members;
+	}
+
+	/**
+	 * Groups the vertices by strongly connected component
+	 *
+	 * @return list of the vertices of each component, indexed by component number
+	 */
+	private List<List<T>> getComponentMembers() {
+		List<List<T>> members = new ArrayList<List<T>>(componentCount);
+		for (int component = 0; component < componentCount; component++) {
+			members.add(new ArrayList<T>());
+		}
+		for (int id = 0; id < vertexCount; id++) {
+			members.get(components[id]).add(vertexOf(id));
+		}
+		return members;
+	}
+
+	/**
+	 * Finds the strongly connected components with Tarjan's algorithm, using an explicit stack instead of
+	 * recursion. A component is numbered once every component it has edges to has been numbered. Only done once
+	 */
+	private void findComponents() {
+		if (components != null) {
+			return;
+		}
+		int[] index = new int[vertexCount]; // order each id was first reached in, from 1, 0 if not yet reached
+		int[] low = new int[vertexCount]; // lowest index reachable from each id through ids still on the stack
+		boolean[] onStack = new boolean[vertexCount]; // ids in componentStack
+		int[] componentStack = new int[vertexCount]; // reached ids not yet given a component
+		int componentTop = 0;
+		int counter = 0;
+		components = new int[vertexCount];
+		componentCount = 0;
+
+		for (int root = 0; root < vertexCount; root++) {
+			if (index[root] != 0) {
+				continue;
+			}
+			int top = 0;
+			stack[top++] = root;
+			index[root] = low[root] = ++counter;
+			next[root] = offsets.get(root);
+			componentStack[componentTop++] = root;
+			onStack[root] = true;
+			while (top > 0) {
+				int current = stack[top - 1];
+				if (next[current] < offsets.get(current + 1)) {
+					int adjacent = targets.get(next[current]++);
+					if (index[adjacent] == 0) {
+						index[adjacent] = low[adjacent] = ++counter;
+						next[adjacent] = offsets.get(adjacent);
+						componentStack[componentTop++] = adjacent;
+						onStack[adjacent] = true;
+						stack[top++] = adjacent;
+					} else if (onStack[adjacent]) {
+						low[current] = Math.min(low[current], index[adjacent]);
+					}
+				} else {
+					// every edge has been followed, pass the low value back to the vertex below on the stack
+					top--;
+					if (top > 0) {
+						int parent = stack[top - 1];
+						low[parent] = Math.min(low[parent], low[current]);
+					}
+					// a vertex that can't reach anything lower on the stack is the root of a component
+					if (low[current] == index[current]) {
+						int member;
+						do {
+							member = componentStack[--componentTop];
+							onStack[member] = false;
+							components[member] = componentCount;
+						} while (member != current);
+						componentCount++;
+					}
+				}
+			}
+		}
+	}
+
+	/**
+	 * Counts the vertices that can be reached from every vertex at once, the same as calling countReachable
+	 * on each vertex. Vertices are processed once in an order where everything a vertex has edges to comes
+	 * first, and the set reached from a vertex is the union of the bit sets of the vertices it has edges to.
+	 * To bound memory the bits are built for one block of reachable vertices at a time, and the blocks are
+	 * split across cores with fork join
+	 *
+	 * @return map from each vertex to the number of vertices reachable from it, -1 if a cycle can be reached
+	 */
+	public Map<T, Integer> countAllReachable() {
+		int[] counts = countAllReachableIds();
+		Map<T, Integer> result = new HashMap<T, Integer>();
+		for (int id = 0; id < vertexCount; id++) {
+			result.put(vertexOf(id), counts[id]);
+		}
+		return result;
+	}
+
+	/**
+	 * Counts the vertices that can be reached from every id, see countAllReachable
+	 *
+	 * @return number of vertices reachable from each id, -1 if a cycle can be reached from it
+	 */
+	private int[] countAllReachableIds() {
+		int[] peeled = peel();
+		int longsPerBlock = Math.max(1, Math.min((vertexCount + 63) / 64, BLOCK_LONGS / Math.max(1, vertexCount)));
+		int blockCount = (vertexCount + longsPerBlock * 64 - 1) / (longsPerBlock * 64);
+		int[] counts = blockCount == 0 ? new int[0]
+				: ForkJoinPool.commonPool().invoke(new BlockCount(peeled, longsPerBlock, 0, blockCount));
+
+		// vertices that were never peeled can reach a cycle
+		boolean[] finished = new boolean[vertexCount];
+		for (int id : peeled) {
+			finished[id] = true;
+		}
+		for (int id = 0; id < vertexCount; id++) {
+			if (!finished[id]) {
+				counts[id] = -1;
+			}
+		}
+		return counts;
+	}
+
+	/**
+	 * Repeatedly removes vertices that have no edges left to vertices that haven't been removed. Every
+	 * vertex that can't reach a cycle is eventually removed, after everything it has edges to. Only done once
+	 *
+	 * @return ids in the order they were removed, must not be modified
+	 */
+	int[] peel() {
+		if (peeled != null) {
+			return peeled;
+		}
+		buildIncoming();
+		int[] remaining = new int[vertexCount]; // edges to vertices that haven't been removed yet
+		for (int id = 0; id < vertexCount; id++) {
+			remaining[id] = offsets.get(id + 1) - offsets.get(id);
+		}
+
+		// the result doubles as the queue of removed ids whose incoming edges still have to be dropped
+		int[] result = new int[vertexCount];
+		int count = 0;
+		for (int id = 0; id < vertexCount; id++) {
+			if (remaining[id] == 0) {
+				result[count++] = id;
+			}
+		}
+		for (int head = 0; head < count; head++) {
+			int current = result[head];
+			for (int i = incomingOffsets[current]; i < incomingOffsets[current + 1]; i++) {
+				if (--remaining[incoming[i]] == 0) {
+					result[count++] = incoming[i];
+				}
+			}
+		}
+		peeled = Arrays.copyOf(result, count);
+		return peeled;
+	}
+
+	/**
+	 * Builds the incoming edges of each id from the outgoing ones. Only done once
+	 */
+	private void buildIncoming() {
+		if (incoming != null) {
+			return;
+		}
+		incomingOffsets = new int[vertexCount + 1];
+		for (int i = 0; i < offsets.get(vertexCount); i++) {
+			incomingOffsets[targets.get(i) + 1]++;
+		}
+		for (int id = 0; id < vertexCount; id++) {
+			incomingOffsets[id + 1] += incomingOffsets[id];
+		}
+		incoming = new int[offsets.get(vertexCount)];
+		int[] position = Arrays.copyOf(incomingOffsets, vertexCount);
+		for (int id = 0; id < vertexCount; id++) {
+			for (int i = offsets.get(id); i < offsets.get(id + 1); i++) {
+				incoming[position[targets.get(i)]++] = id;
+			}
+		}
+	}
+
+	/**
+	 * Private embedded class for counting reachable vertices over a range of blocks. A range of more than
+	 * one block is split in half and the halves are counted in parallel, a single block builds the bits of
+	 * the vertices in that block reachable from every vertex
+	 */
+	private class BlockCount extends RecursiveTask<int[]> {
+
+		private static final long serialVersionUID = 1L;
+
+		// field variables
+		private int[] peeled; // ids that can't reach a cycle, everything a vertex has edges to comes first
+		private int longsPerBlock; // number of longs of bits each vertex has in one block
+		private int firstBlock; // first block in the range
+		private int endBlock; // block after the last block in the range
+
+		/**
+		 * Constructor for the class
+		 */
+		BlockCount(int[] peeled, int longsPerBlock, int firstBlock, int endBlock) {
+			this.peeled = peeled;
+			this.longsPerBlock = longsPerBlock;
+			this.firstBlock = firstBlock;
+			this.endBlock = endBlock;
+		}
+
+		/**
+		 * Counts the range of blocks, returning the number of vertices in the range reachable from each id
+		 */
+		@Override
+		protected int[] compute() {
+			if (endBlock - firstBlock > 1) {
+				int middle = (firstBlock + endBlock) >>> 1;
+				BlockCount left = new BlockCount(peeled, longsPerBlock, firstBlock, middle);
+				left.fork();
+				int[] counts = new BlockCount(peeled, longsPerBlock, middle, endBlock).compute();
+				int[] leftCounts = left.join();
+				for (int id = 0; id < counts.length; id++) {
+					counts[id] += leftCounts[id];
+				}
+				return counts;
+			}
+
+			int first = firstBlock * longsPerBlock * 64; // first id in the block
+			int end = Math.min(vertexCount, first + longsPerBlock * 64); // id after the last id in the block
+			long[] bits = new long[vertexCount * longsPerBlock]; // bits of each id, one per id in the block
+			int[] counts = new int[vertexCount];
+			for (int id : peeled) {
+				int base = id * longsPerBlock;
+				for (int i = offsets.get(id); i < offsets.get(id + 1); i++) {
+					int adjacent = targets.get(i);
+					int adjacentBase = adjacent * longsPerBlock;
+					for (int word = 0; word < longsPerBlock; word++) {
+						bits[base + word] |= bits[adjacentBase + word];
+					}
+					if (adjacent >= first && adjacent < end) {
+						bits[base + ((adjacent - first) >>> 6)] |= 1L << (adjacent - first);
+					}
+				}
+				int count = 0;
+				for (int word = 0; word < longsPerBlock; word++) {
+					count += Long.bitCount(bits[base + word]);
+				}
+				counts[id] = count;
+			}
+			return counts;
+		}
+	}
+
+	/**
+	 * Sorts the whole graph, walking from every vertex that hasn't been visited yet. Only done once
+	 */
+	private void sort() {
+		if (sorted) {
+			return;
+		}
+		sorted = true;
+		byte[] colour = new byte[vertexCount];
+		int[] result = new int[vertexCount];
+		int count = 0;
+		for (int id = 0; id < vertexCount; id++) {
+			if (colour[id] == WHITE) {
+				count = visit(id, colour, result, count);
+				if (count < 0) {
+					return; // cycle found, leave order as null
+				}
+			}
+		}
+		order = result;
+	}
+
+	/**
+	 * Depth first walk from the given vertex using an explicit stack. Each vertex is added to the
+	 * result after every vertex it has edges to
+	 *
+	 * @param root is the id of the vertex to walk from
+	 * @param colour is the colour of each id, shared between walks so finished vertices aren't walked again
+	 * @param result stores the finished ids in order
+	 * @param count is the number of ids already in result
+	 * @return the number of ids in result after the walk, -1 if a cycle was found
+	 */
+	private int visit(int root, byte[] colour, int[] result, int count) {
+		int start = count;
+		long scanned = 0; // edges followed, for the metrics
+		int top = 0;
+		stack[top++] = root;
+		colour[root] = GREY;
+		next[root] = offsets.get(root);
+		while (top > 0) {
+			int current = stack[top - 1];
+			if (next[current] < offsets.get(current + 1)) {
+				int adjacent = targets.get(next[current]++);
+				scanned++;
+				if (colour[adjacent] == WHITE) {
+					colour[adjacent] = GREY;
+					next[adjacent] = offsets.get(adjacent);
+					stack[top++] = adjacent;
+				} else if (colour[adjacent] == GREY) {
+					SchedulerMetrics.traversed(count - start + top, scanned);
+					return -1; // edge back to a vertex still on the stack
+				}
+			} else {
+				// every edge has been followed, the vertex is finished
+				colour[current] = BLACK;
+				result[count++] = current;
+				top--;
+			}
+		}
+		SchedulerMetrics.traversed(count - start, scanned);
+		return count;
+	}
+
+	/**
+	 * Copies a graph into int adjacency arrays, giving the vertices ids in the order the graph lists them
+	 *
+	 * @param graph is the graph to copy
+	 */
+	private void copy(GraphADT<T> graph) {
+		vertices = new ArrayList<T>(graph.getAllVertices());
+		vertexCount = vertices.size();
+		ids = new HashMap<T, Integer>();
+		for (int id = 0; id < vertexCount; id++) {
+			ids.put(vertices.get(id), id);
+		}
+		int[] offsets = new int[vertexCount + 1];
+		int[] targets = new int[graph.size()];
+		int edgeCount = 0;
+		for (int id = 0; id < vertexCount; id++) {
+			for (T adjacent : graph.getAdjacentVerticesOf(vertices.get(id))) {
+				Integer adjacentId = ids.get(adjacent);
+				if (adjacentId == null) {
+					continue;
+				}
+				if (edgeCount == targets.length) {
+					targets = Arrays.copyOf(targets, Math.max(16, edgeCount * 2));
+				}
+				targets[edgeCount++] = adjacentId;
+			}
+			offsets[id + 1] = edgeCount;
+		}
+		this.offsets = IntBuffer.wrap(offsets);
+		this.targets = IntBuffer.wrap(targets);
+	}
+
+	/**
+	 * Gets the strongly connected component of each id, numbered as in getCondensation. Must not be modified
+	 */
+	int[] components() {
+		findComponents();
+		return components;
+	}
+
+	/**
+	 * Gets the number of vertices, ids run from 0 to vertexCount() - 1
+	 */
+	int vertexCount() {
+		return vertexCount;
+	}
+
+	/**
+	 * Gets the start of each id's adjacent ids in targets(), plus one extra entry for the end. Must not be modified
+	 */
+	IntBuffer offsets() {
+		return offsets;
+	}
+
+	/**
+	 * Gets the adjacent ids of every id laid out one after another. Must not be modified
+	 */
+	IntBuffer targets() {
+		return targets;
+	}
+
+	/**
+	 * Gets the start of each id's incoming ids in incoming(), plus one extra entry for the end. Must not be modified
+	 */
+	int[] incomingOffsets() {
+		buildIncoming();
+		return incomingOffsets;
+	}
+
+	/**
+	 * Gets the ids with an edge to each id laid out one after another. Must not be modified
+	 */
+	int[] incoming() {
+		buildIncoming();
+		return incoming;
+	}
+
+	/**
+	 * Gets the id of a vertex
+	 *
+	 * @return id of the vertex, -1 if the vertex isn't in the graph
+	 */
+	int idOf(T vertex) {
+		if (indexed != null) {
+			return indexed.idOf(vertex);
+		}
+		Integer id = vertex == null ? null : ids.get(vertex);
+		return id == null ? -1 : id;
+	}
+
+	/**
+	 * Gets the vertex with the given id
+	 */
+	T vertexOf(int id) {
+		return indexed != null ? indexed.vertexOf(id) : vertices.get(id);
+	}
+}
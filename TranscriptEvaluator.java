@@ -0,0 +1,392 @@
+import java.nio.IntBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+
+/**
+ * Filename:   TranscriptEvaluator.java
+ * Project:    p4
+ * Authors:    Aron Denenberg
+ *
+ * Works out which courses students still have to take, given what they have already completed, for
+ * many students at once. Courses are numbered by id and sets of courses are bitsets stored as long[],
+ * course id in bit (id % 64) of word id / 64, the same layout as java.util.BitSet.toLongArray(). A
+ * student's transcript is such a bitset of completed courses.
+ *
+ * The courses required for a set of target courses, such as a degree program, are the targets and
+ * everything they require. This closure is worked out once per target and remembered, so evaluating
+ * a student is then one pass of required & ~completed over the words where any course is required,
+ * which for a degree is usually a small part of the V / 64 words. evaluateAll hands out the result as
+ * the ids of the missing courses rather than as a full bitset, and can check every student against the
+ * same targets or each against their own program given as an Audit. Transcripts are read in chunks, each
+ * chunk is evaluated in parallel on the common fork join pool, and the results are handed out in input
+ * order before the next chunk is read, so only one chunk of transcripts and results is ever held.
+ *
+ * Bugs or other notes: the evaluator is built from the graph as it is at that time and isn't updated
+ * when the graph changes. Courses in a cycle are required like any other, even though they can't be
+ * completed
+ *
+ * @param <T> type of a vertex
+ */
+public class TranscriptEvaluator<T> {
+
+	// number of transcripts read and evaluated together
+	private static final int CHUNK = 1 << 12;
+
+	// transcripts each parallel task evaluates at least
+	private static final int TASK = 256;
+
+	/**
+	 * Receives the result for each transcript, in the order the transcripts were given
+	 */
+	public interface ResultHandler {
+		/**
+		 * @param index is the position of the transcript in the input, starting at 0
+		 * @param missing are the ids of the required courses the student hasn't completed, in increasing order
+		 */
+		void accept(long index, int[] missing);
+	}
+
+	/**
+	 * One student's courses to check, for evaluateAll
+	 */
+	public static class Audit {
+
+		// field variables
+		private long[] required; // bitset of the courses the student's program requires, from getRequired
+		private long[] completed; // bitset of the courses the student has completed
+
+		/**
+		 * Constructor for the class
+		 *
+		 * @param required is a bitset of the courses the student's program requires, from getRequired
+		 * @param completed is a bitset of the courses the student has completed, which may be shorter
+		 */
+		public Audit(long[] required, long[] completed) {
+			this.required = required;
+			this.completed = completed;
+		}
+
+		/** Returns the bitset of the courses the student's program requires */
+		public long[] getRequired() {
+			return required;
+		}
+
+		/** Returns the bitset of the courses the student has completed */
+		public long[] getCompleted() {
+			return completed;
+		}
+	}
+
+	// field variables
+	private TopologicalSorter<T> sorter; // ids and int arrays of the graph
+	private int words; // number of longs in a bitset over every course
+	private ConcurrentHashMap<Integer, long[]> closures; // each target id asked about and everything it requires
+
+	/**
+	 * Constructor for the class. Copies the graph into int arrays, closures are worked out when needed
+	 *
+	 * @param graph is the graph of courses and their prerequisites
+	 */
+	public TranscriptEvaluator(GraphADT<T> graph) {
+		sorter = new TopologicalSorter<T>(graph);
+		words = (sorter.vertexCount() + 63) / 64;
+		closures = new ConcurrentHashMap<Integer, long[]>();
+	}
+
+	/**
+	 * Gets the number of courses, course ids run from 0 to getCourseCount() - 1
+	 *
+	 * @return number of courses
+	 */
+	public int getCourseCount() {
+		return sorter.vertexCount();
+	}
+
+	/**
+	 * Gets the id of a course
+	 *
+	 * @param course to get the id of
+	 * @return id of the course, -1 if it isn't in the graph
+	 */
+	public int idOf(T course) {
+		return sorter.idOf(course);
+	}
+
+	/**
+	 * Gets the course with an id
+	 *
+	 * @param id of the course
+	 * @return the course
+	 */
+	public T courseOf(int id) {
+		return sorter.vertexOf(id);
+	}
+
+	/**
+	 * Makes a bitset of courses
+	 *
+	 * @param courses to put in the bitset, courses that aren't in the graph are left out
+	 * @return bitset with the bit of every given course set
+	 */
+	public long[] toBitset(Collection<T> courses) {
+		long[] bits = new long[words];
+		for (T course : courses) {
+			int id = sorter.idOf(course);
+			if (id >= 0) {
+				bits[id >>> 6] |= 1L << id;
+			}
+		}
+		return bits;
+	}
+
+	/**
+	 * Lists the courses in a bitset
+	 *
+	 * @param bits is a bitset over course ids
+	 * @return the courses whose bits are set, in id order
+	 */
+	public List<T> toCourses(long[] bits) {
+		List<T> courses = new ArrayList<T>();
+		for (int word = 0; word < bits.length; word++) {
+			for (long rest = bits[word]; rest != 0; rest &= rest - 1) {
+				courses.add(sorter.vertexOf(word * 64 + Long.numberOfTrailingZeros(rest)));
+			}
+		}
+		return courses;
+	}
+
+	/**
+	 * Lists the courses with the given ids
+	 *
+	 * @param ids are course ids, such as a result from evaluateAll
+	 * @return the courses in the same order as the ids
+	 */
+	public List<T> toCourses(int[] ids) {
+		List<T> courses = new ArrayList<T>(ids.length);
+		for (int id : ids) {
+			courses.add(sorter.vertexOf(id));
+		}
+		return courses;
+	}
+
+	/**
+	 * Gets every course required to complete the targets, the targets included
+	 *
+	 * @param targets are the courses to complete, such as the courses of a degree program
+	 * @return bitset of the required courses
+	 * @throws IllegalArgumentException if a target isn't in the graph
+	 */
+	public long[] getRequired(Collection<T> targets) {
+		long[] required = new long[words];
+		for (T target : targets) {
+			int id = sorter.idOf(target);
+			if (id < 0) {
+				throw new IllegalArgumentException("Unknown course: " + target);
+			}
+			long[] closure = closureOf(id);
+			for (int i = 0; i < words; i++) {
+				required[i] |= closure[i];
+			}
+		}
+		return required;
+	}
+
+	/**
+	 * Gets the required courses that haven't been completed
+	 *
+	 * @param required is a bitset of the required courses, from getRequired
+	 * @param completed is a bitset of the completed courses, which may be shorter than required
+	 * @return new bitset of required & ~completed
+	 */
+	public long[] missing(long[] required, long[] completed) {
+		long[] missing = new long[required.length];
+		int shared = Math.min(required.length, completed.length);
+		for (int i = 0; i < shared; i++) {
+			missing[i] = required[i] & ~completed[i];
+		}
+		System.arraycopy(required, shared, missing, shared, required.length - shared);
+		return missing;
+	}
+
+	/**
+	 * Works out the missing courses of many students against the same targets. Transcripts are read one chunk
+	 * at a time and the chunk is evaluated in parallel, and the results of the chunk are handed to the handler
+	 * on the calling thread before the next chunk is read. Each transcript is held until every result of its
+	 * chunk has been handled, so up to 4096 transcripts are kept at once however many the iterator gives
+	 *
+	 * @param targets are the courses every student needs to complete
+	 * @param transcripts are bitsets of each student's completed courses
+	 * @param handler receives the ids of each student's missing courses in input order
+	 * @return number of transcripts evaluated
+	 * @throws IllegalArgumentException if a target isn't in the graph
+	 */
+	public long evaluateAll(Collection<T> targets, final Iterator<long[]> transcripts, ResultHandler handler) {
+		final long[] required = getRequired(targets);
+		return evaluateAll(new Iterator<Audit>() {
+			public boolean hasNext() {
+				return transcripts.hasNext();
+			}
+
+			public Audit next() {
+				return new Audit(required, transcripts.next());
+			}
+		}, handler);
+	}
+
+	/**
+	 * Works out the missing courses of many students, each against their own program, such as a degree audit
+	 * over students in different majors. Audits are read and evaluated in chunks as in the other evaluateAll,
+	 * and each audit is held until every result of its chunk has been handled. The words of a required
+	 * bitset that hold a course are found once per chunk for each distinct array, so students in the same
+	 * program should share one array from getRequired
+	 *
+	 * @param audits are each student's required and completed courses
+	 * @param handler receives the ids of each student's missing courses in input order
+	 * @return number of audits evaluated
+	 */
+	public long evaluateAll(Iterator<Audit> audits, ResultHandler handler) {
+		Audit[] chunk = new Audit[CHUNK];
+		int[][] requiredWords = new int[CHUNK][];
+		int[][] results = new int[CHUNK][];
+		Map<long[], int[]> wordsOf = new IdentityHashMap<long[], int[]>(); // non zero words of each program in the chunk
+		long index = 0;
+		while (audits.hasNext()) {
+			int size = 0;
+			while (size < CHUNK && audits.hasNext()) {
+				Audit audit = audits.next();
+				int[] nonZero = wordsOf.get(audit.getRequired());
+				if (nonZero == null) {
+					nonZero = nonZeroWords(audit.getRequired());
+					wordsOf.put(audit.getRequired(), nonZero);
+				}
+				requiredWords[size] = nonZero;
+				chunk[size++] = audit;
+			}
+			wordsOf.clear();
+			Evaluate evaluate = new Evaluate(chunk, requiredWords, results, 0, size);
+			if (size >= 2 * TASK) {
+				ForkJoinPool.commonPool().invoke(evaluate);
+			} else {
+				evaluate.compute();
+			}
+			for (int i = 0; i < size; i++) {
+				handler.accept(index++, results[i]);
+				chunk[i] = null; // let the audit and result be collected once handled
+				requiredWords[i] = null;
+				results[i] = null;
+			}
+		}
+		return index;
+	}
+
+	/**
+	 * Gets the positions of the words of a bitset that aren't 0, in increasing order
+	 */
+	private static int[] nonZeroWords(long[] bits) {
+		int[] nonZero = new int[bits.length];
+		int count = 0;
+		for (int i = 0; i < bits.length; i++) {
+			if (bits[i] != 0) {
+				nonZero[count++] = i;
+			}
+		}
+		return Arrays.copyOf(nonZero, count);
+	}
+
+	/**
+	 * Gets the closure of one course, working it out with a depth first walk the first time it is asked for
+	 */
+	private long[] closureOf(int root) {
+		long[] closure = closures.get(root);
+		if (closure != null) {
+			return closure;
+		}
+		IntBuffer offsets = sorter.offsets();
+		IntBuffer targets = sorter.targets();
+		closure = new long[words];
+		int[] stack = new int[sorter.vertexCount()];
+		int top = 0;
+		closure[root >>> 6] |= 1L << root;
+		stack[top++] = root;
+		while (top > 0) {
+			int current = stack[--top];
+			for (int i = offsets.get(current); i < offsets.get(current + 1); i++) {
+				int adjacent = targets.get(i);
+				if ((closure[adjacent >>> 6] & (1L << adjacent)) == 0) {
+					closure[adjacent >>> 6] |= 1L << adjacent;
+					stack[top++] = adjacent;
+				}
+			}
+		}
+		closures.putIfAbsent(root, closure);
+		return closure;
+	}
+
+	/**
+	 * Evaluates a range of a chunk of audits, splitting large ranges in half to run in parallel
+	 */
+	private static class Evaluate extends RecursiveAction {
+
+		private static final long serialVersionUID = 1L;
+
+		// field variables
+		private Audit[] audits; // required and completed courses of each student in the chunk
+		private int[][] requiredWords; // words of each student's required courses that aren't 0, in increasing order
+		private int[][] results; // ids of the missing courses of each student in the chunk
+		private int from; // first audit in the range
+		private int to; // audit after the last one in the range
+
+		/**
+		 * Constructor for the class
+		 */
+		Evaluate(Audit[] audits, int[][] requiredWords, int[][] results, int from, int to) {
+			this.audits = audits;
+			this.requiredWords = requiredWords;
+			this.results = results;
+			this.from = from;
+			this.to = to;
+		}
+
+		@Override
+		protected void compute() {
+			if (to - from >= 2 * TASK) {
+				int middle = (from + to) >>> 1;
+				invokeAll(new Evaluate(audits, requiredWords, results, from, middle),
+						new Evaluate(audits, requiredWords, results, middle, to));
+				return;
+			}
+			for (int i = from; i < to; i++) {
+				results[i] = missingIds(audits[i].getRequired(), requiredWords[i], audits[i].getCompleted());
+			}
+		}
+
+		/**
+		 * Gets the ids of the required courses missing from one transcript, counting them first so the
+		 * result is made at its exact size
+		 */
+		private int[] missingIds(long[] required, int[] nonZero, long[] completed) {
+			int count = 0;
+			for (int word : nonZero) {
+				count += Long.bitCount(word < completed.length ? required[word] & ~completed[word] : required[word]);
+			}
+			int[] missing = new int[count];
+			int next = 0;
+			for (int word : nonZero) {
+				long rest = word < completed.length ? required[word] & ~completed[word] : required[word];
+				for (; rest != 0; rest &= rest - 1) {
+					missing[next++] = word * 64 + Long.numberOfTrailingZeros(rest);
+				}
+			}
+			return missing;
+		}
+	}
+}